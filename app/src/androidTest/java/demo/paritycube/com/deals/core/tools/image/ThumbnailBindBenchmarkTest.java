@@ -0,0 +1,147 @@
+package demo.paritycube.com.deals.core.tools.image;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.squareup.picasso.Request;
+import com.squareup.picasso.RequestHandler;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import demo.paritycube.com.deals.util.RoundedCorners;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Bitmap allocations and time of 100 row thumbnail binds that miss the
+ * memory cache. The pooled path is {@link ThumbnailRequestHandler}, fed a
+ * JPEG by an interceptor instead of the network; the baseline is Picasso's
+ * own pipeline of a sampled decode, a resize() copy and a rounded output.
+ * Results go to logcat under "ThumbnailBindBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class ThumbnailBindBenchmarkTest {
+    private static final String TAG = "ThumbnailBindBenchmark";
+    private static final int BINDS = 100;
+    private static final int SOURCE_WIDTH = 640;
+    private static final int SOURCE_HEIGHT = 480;
+    private static final int THUMBNAIL_SIZE = 165;
+    private static final int RADIUS = 200;
+    private static final int MARGIN = 0;
+
+    private byte[] jpeg;
+
+    @Before
+    public void encodeSourceImage() {
+        Bitmap source = Bitmap.createBitmap(SOURCE_WIDTH, SOURCE_HEIGHT, Bitmap.Config.ARGB_8888);
+        new Canvas(source).drawColor(Color.rgb(0xE0, 0x40, 0x20));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        source.compress(Bitmap.CompressFormat.JPEG, 90, bytes);
+        source.recycle();
+        jpeg = bytes.toByteArray();
+    }
+
+    @Test
+    public void pooledBindsAllocateOneBitmapEach() throws Exception {
+        final byte[] body = jpeg;
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(chain -> new Response.Builder()
+                        .request(chain.request())
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(200)
+                        .message("OK")
+                        .body(ResponseBody.create(MediaType.parse("image/jpeg"), body))
+                        .build())
+                .build();
+        BitmapPool pool = new BitmapPool(BitmapPool.DEFAULT_MAX_BYTES);
+        ThumbnailRequestHandler handler = new ThumbnailRequestHandler(new OkHttpImageDownloader(client), pool);
+        Request request = new Request.Builder(ThumbnailRequestHandler.createUri(
+                "http://example.com/deal.jpg", THUMBNAIL_SIZE, RADIUS, MARGIN)).build();
+
+        long[] pooledTimes = new long[BINDS];
+        long pooledBytes = 0;
+        for (int i = 0; i < BINDS; i++) {
+            int allocations = pool.getAllocationCount();
+            long start = SystemClock.elapsedRealtimeNanos();
+            RequestHandler.Result result = handler.load(request, 0);
+            pooledTimes[i] = SystemClock.elapsedRealtimeNanos() - start;
+            /* The output goes to the memory cache and the view, never back to the pool. */
+            if (pool.getAllocationCount() > allocations) {
+                pooledBytes += result.getBitmap().getAllocationByteCount();
+            }
+        }
+        int pooledAllocations = pool.getAllocationCount();
+
+        long[] baselineTimes = new long[BINDS];
+        long baselineBytes = 0;
+        int baselineAllocations = 0;
+        for (int i = 0; i < BINDS; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            Bitmap[] bitmaps = bindThroughPicassoSteps();
+            baselineTimes[i] = SystemClock.elapsedRealtimeNanos() - start;
+            for (int j = 0; j < bitmaps.length; j++) {
+                if (j == 0 || bitmaps[j] != bitmaps[j - 1]) {
+                    baselineAllocations++;
+                    baselineBytes += bitmaps[j].getAllocationByteCount();
+                }
+            }
+        }
+
+        Log.i(TAG, String.format("%d binds of a %dx%d JPEG into %d px thumbnails: "
+                        + "pooled %d bitmaps, %d KB of outputs, median %.2f ms; "
+                        + "Picasso steps %d bitmaps, %d KB, median %.2f ms",
+                BINDS, SOURCE_WIDTH, SOURCE_HEIGHT, THUMBNAIL_SIZE,
+                pooledAllocations, pooledBytes / 1024, median(pooledTimes) / 1e6,
+                baselineAllocations, baselineBytes / 1024, median(baselineTimes) / 1e6));
+        /* One output per bind, plus the decode bitmap allocated by the first one. */
+        assertEquals(BINDS + 1, pooledAllocations);
+        assertTrue(pooledAllocations < baselineAllocations);
+    }
+
+    /**
+     * Decodes, resizes and rounds the image the way Picasso does with
+     * resize() and a rounding transformation, returning every bitmap made.
+     */
+    private Bitmap[] bindThroughPicassoSteps() {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, options);
+        float scale = Math.min(1f, Math.min(THUMBNAIL_SIZE / (float) options.outWidth,
+                THUMBNAIL_SIZE / (float) options.outHeight));
+        int width = Math.max(1, Math.round(options.outWidth * scale));
+        int height = Math.max(1, Math.round(options.outHeight * scale));
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= width && options.outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        Bitmap decoded = BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, options);
+        Bitmap resized = Bitmap.createScaledBitmap(decoded, width, height, true);
+        Bitmap rounded = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        RoundedCorners.draw(resized, rounded, RADIUS, MARGIN);
+        return new Bitmap[]{decoded, resized, rounded};
+    }
+
+    private static long median(long[] times) {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
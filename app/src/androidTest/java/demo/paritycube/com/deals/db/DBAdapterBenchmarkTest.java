@@ -0,0 +1,115 @@
+package demo.paritycube.com.deals.db;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+
+import demo.paritycube.com.deals.pojo.Datum;
+import demo.paritycube.com.deals.pojo.TopDeals;
+import demo.paritycube.com.deals.util.AssetJsonLoader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Cold and warm latency of reading the cached top deals. A cold read opens
+ * the database first, which every read used to do when each call built its
+ * own helper and closed it afterwards; a warm read runs on the shared
+ * connection kept open between callers. Timings go to logcat under
+ * "DBAdapterBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class DBAdapterBenchmarkTest {
+    private static final String TAG = "DBAdapterBenchmark";
+    private static final int WARM_UP_RUNS = 10;
+    private static final int RUNS = 50;
+
+    private DBAdapter dbAdapter;
+    private int dealCount;
+
+    @Before
+    public void seedTopDeals() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        TopDeals topDeals = AssetJsonLoader.load(context, "topdealresponse.json", TopDeals.class);
+        List<Datum> deals = topDeals.getDeals().getData();
+        dbAdapter = DBAdapter.getInstance(context);
+        dbAdapter.open();
+        try {
+            dealCount = dbAdapter.upsertDeals(DbConstants.FeedType.TOP, deals, true);
+        } finally {
+            dbAdapter.close();
+        }
+        assertFalse(deals.isEmpty());
+    }
+
+    @After
+    public void releaseConnection() {
+        dbAdapter.releaseIdleConnection();
+    }
+
+    @Test
+    public void warmReadsAreFasterThanReadsThatOpenTheDatabase() {
+        long first = coldRead();
+        long cold = medianNanos(true);
+        long warm = medianNanos(false);
+
+        Log.i(TAG, String.format("getFeedDeals(top), %d deals: first %.2f ms, cold %.2f ms, warm %.2f ms",
+                dealCount, first / 1e6, cold / 1e6, warm / 1e6));
+        assertTrue("warm " + warm + " ns, cold " + cold + " ns", warm < cold);
+    }
+
+    @Test
+    public void sharedConnectionUsesWriteAheadLogging() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        dbAdapter.open();
+        try {
+            assertEquals(dealCount, dbAdapter.getFeedDeals(DbConstants.FeedType.TOP).size());
+            assertTrue(context.getDatabasePath("Parity_DB-wal").exists());
+        } finally {
+            dbAdapter.close();
+        }
+    }
+
+    private long coldRead() {
+        dbAdapter.releaseIdleConnection();
+        return read();
+    }
+
+    private long read() {
+        long start = SystemClock.elapsedRealtimeNanos();
+        dbAdapter.open();
+        try {
+            assertEquals(dealCount, dbAdapter.getFeedDeals(DbConstants.FeedType.TOP).size());
+        } finally {
+            dbAdapter.close();
+        }
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+
+    private long medianNanos(boolean cold) {
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            if (cold) {
+                coldRead();
+            } else {
+                read();
+            }
+        }
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            times[i] = cold ? coldRead() : read();
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2];
+    }
+}
@@ -0,0 +1,145 @@
+package demo.paritycube.com.deals.db;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Seeds databases in the shape of the older versions and opens them with
+ * the current helper, checking that the cached deals, their feed order and
+ * the signed-in account survive the upgrade.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseUpgradeTest {
+    private static final String DATABASE_NAME = "upgrade_test_db";
+
+    private Context context;
+    private DBAdapter.DatabaseHelper helper;
+
+    @Before
+    public void deleteTestDatabase() {
+        context = InstrumentationRegistry.getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @After
+    public void closeHelper() {
+        if (helper != null) {
+            helper.close();
+        }
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void upgradeFromVersion1KeepsDealsFeedOrderAndAccount() {
+        SQLiteDatabase v1 = context.openOrCreateDatabase(DATABASE_NAME, Context.MODE_PRIVATE, null);
+        v1.execSQL(DbConstants.SQL_CREATE_USER_ACCOUNT);
+        v1.execSQL(createVersion1FeedTable(DbConstants.Tables.TOP_DEALS));
+        v1.execSQL(createVersion1FeedTable(DbConstants.Tables.POPULAR_DEALS));
+        v1.execSQL("INSERT INTO " + DbConstants.Tables.USER_ACCOUNT
+                + " VALUES ('fb-1', 'Sandy', 'sandy@example.com', 'http://example.com/p.png')");
+        insertVersion1Deal(v1, DbConstants.Tables.TOP_DEALS, "30", "Third added first");
+        insertVersion1Deal(v1, DbConstants.Tables.TOP_DEALS, "10", "Ten");
+        insertVersion1Deal(v1, DbConstants.Tables.TOP_DEALS, "20", "Twenty");
+        insertVersion1Deal(v1, DbConstants.Tables.POPULAR_DEALS, "20", "Twenty");
+        insertVersion1Deal(v1, DbConstants.Tables.POPULAR_DEALS, "40", "Forty");
+        v1.setVersion(1);
+        v1.close();
+
+        helper = new DBAdapter.DatabaseHelper(context, DATABASE_NAME);
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        assertEquals(Arrays.asList(30L, 10L, 20L), feedDealIds(db, DbConstants.FeedType.TOP));
+        assertEquals(Arrays.asList(20L, 40L), feedDealIds(db, DbConstants.FeedType.POPULAR));
+        assertEquals(4, DatabaseUtils.queryNumEntries(db, DbConstants.Tables.DEALS));
+        assertEquals("Ten", DatabaseUtils.stringForQuery(db, "SELECT " + DbConstants.DealCollumn.TITLE
+                + " FROM " + DbConstants.Tables.DEALS + " WHERE " + DbConstants.DealCollumn._ID + " = 10", null));
+        assertEquals("http://example.com/10.png", DatabaseUtils.stringForQuery(db, "SELECT "
+                + DbConstants.DealCollumn.IMAGEURL + " FROM " + DbConstants.Tables.DEALS
+                + " WHERE " + DbConstants.DealCollumn._ID + " = 10", null));
+        assertEquals("Sandy", DatabaseUtils.stringForQuery(db, "SELECT " + DbConstants.UserAccountCollumn.USERNAME
+                + " FROM " + DbConstants.Tables.USER_ACCOUNT, null));
+        assertFalse(tableExists(db, DbConstants.Tables.TOP_DEALS));
+        assertFalse(tableExists(db, DbConstants.Tables.POPULAR_DEALS));
+        assertEquals(0, DatabaseUtils.longForQuery(db, "SELECT MAX(" + DbConstants.FeedEntryCollumn.FETCHED_AT
+                + ") FROM " + DbConstants.Tables.FEED_ENTRIES, null));
+    }
+
+    @Test
+    public void upgradeFromVersion2AddsFetchedAtAndKeepsEntries() {
+        SQLiteDatabase v2 = context.openOrCreateDatabase(DATABASE_NAME, Context.MODE_PRIVATE, null);
+        v2.execSQL(DbConstants.SQL_CREATE_USER_ACCOUNT);
+        v2.execSQL(DbConstants.SQL_CREATE_DEALS);
+        v2.execSQL(DbConstants.SQL_CREATE_MERCHANTS);
+        v2.execSQL(DbConstants.SQL_CREATE_DEAL_USERS);
+        v2.execSQL("CREATE TABLE " + DbConstants.Tables.FEED_ENTRIES + " ("
+                + DbConstants.FeedEntryCollumn.FEED_TYPE + " TEXT NOT NULL, "
+                + DbConstants.FeedEntryCollumn.DEAL_ID + " INTEGER NOT NULL, "
+                + DbConstants.FeedEntryCollumn.POSITION + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + DbConstants.FeedEntryCollumn.FEED_TYPE + ", "
+                + DbConstants.FeedEntryCollumn.DEAL_ID + ") ON CONFLICT REPLACE)");
+        v2.execSQL("INSERT INTO " + DbConstants.Tables.DEALS + " (" + DbConstants.DealCollumn._ID + ", "
+                + DbConstants.DealCollumn.TITLE + ", " + DbConstants.DealCollumn.SCORE + ") VALUES (7, 'Seven', 42)");
+        v2.execSQL("INSERT INTO " + DbConstants.Tables.FEED_ENTRIES + " VALUES ('top', 7, 0)");
+        v2.setVersion(2);
+        v2.close();
+
+        helper = new DBAdapter.DatabaseHelper(context, DATABASE_NAME);
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        assertEquals(Arrays.asList(7L), feedDealIds(db, DbConstants.FeedType.TOP));
+        assertEquals(42, DatabaseUtils.longForQuery(db, "SELECT " + DbConstants.DealCollumn.SCORE
+                + " FROM " + DbConstants.Tables.DEALS + " WHERE " + DbConstants.DealCollumn._ID + " = 7", null));
+        assertEquals(0, DatabaseUtils.longForQuery(db, "SELECT " + DbConstants.FeedEntryCollumn.FETCHED_AT
+                + " FROM " + DbConstants.Tables.FEED_ENTRIES, null));
+    }
+
+    private static String createVersion1FeedTable(String table) {
+        return "CREATE TABLE " + table + " ("
+                + DbConstants.TopDealCollumn._ID + " TEXT PRIMARY KEY, "
+                + DbConstants.TopDealCollumn.TITLE + " TEXT DEFAULT NULL, "
+                + DbConstants.TopDealCollumn.DESCRIPTION + " TEXT DEFAULT NULL, "
+                + DbConstants.TopDealCollumn.IMAGEURL + " TEXT DEFAULT NULL, "
+                + "UNIQUE (" + DbConstants.TopDealCollumn._ID + ") ON CONFLICT REPLACE)";
+    }
+
+    private static void insertVersion1Deal(SQLiteDatabase db, String table, String id, String title) {
+        db.execSQL("INSERT INTO " + table + " VALUES (?, ?, ?, ?)",
+                new Object[]{id, title, "About " + title, "http://example.com/" + id + ".png"});
+    }
+
+    private static List<Long> feedDealIds(SQLiteDatabase db, String feedType) {
+        List<Long> ids = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT " + DbConstants.FeedEntryCollumn.DEAL_ID + " FROM "
+                + DbConstants.Tables.FEED_ENTRIES + " WHERE " + DbConstants.FeedEntryCollumn.FEED_TYPE
+                + " = ? ORDER BY " + DbConstants.FeedEntryCollumn.POSITION, new String[]{feedType});
+        try {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
+    private static boolean tableExists(SQLiteDatabase db, String table) {
+        return DatabaseUtils.queryNumEntries(db, "sqlite_master", "type = 'table' AND name = ?",
+                new String[]{table}) > 0;
+    }
+}
@@ -0,0 +1,150 @@
+package demo.paritycube.com.deals.util;
+
+import android.app.Activity;
+import android.app.Application;
+import android.app.Instrumentation;
+import android.content.Context;
+import android.graphics.Typeface;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.ViewTreeObserver;
+import android.widget.TextView;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import demo.paritycube.com.deals.ParityActivity;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Main thread cost of applying typefaces while binding, and the time to the
+ * first frame of {@link ParityActivity}, whose screens bind them. Applying a face that is not loaded yet
+ * through {@code app:typefaceId} only schedules the load, where a direct
+ * {@link TypefaceFactory#getTypeFaceForId} extracts and checks the font on
+ * the calling thread. Timings go to logcat under "TypefaceBinding".
+ */
+@RunWith(AndroidJUnit4.class)
+public class TypefaceBindingTest {
+    private static final String TAG = "TypefaceBinding";
+    private static final long TIMEOUT_MS = 5000;
+
+    @Rule
+    public ActivityTestRule<ParityActivity> activityRule =
+            new ActivityTestRule<>(ParityActivity.class, false, false);
+
+    @Test
+    public void bindingAFaceNotLoadedYetDoesNotLoadItOnTheMainThread() throws Exception {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        final Context context = InstrumentationRegistry.getTargetContext();
+        deleteExtractedFont(context, "font_roboto_thin");
+        deleteExtractedFont(context, "font_roboto_light");
+
+        final TextView[] view = new TextView[1];
+        final long[] nanos = new long[2];
+        instrumentation.runOnMainSync(() -> {
+            view[0] = new TextView(context);
+            long start = SystemClock.elapsedRealtimeNanos();
+            TypefaceFactory.setTypefaceId(view[0], TypefaceFactory.RobotoThin);
+            nanos[0] = SystemClock.elapsedRealtimeNanos() - start;
+
+            start = SystemClock.elapsedRealtimeNanos();
+            TypefaceFactory.getTypeFaceForId(context, TypefaceFactory.RobotoLight);
+            nanos[1] = SystemClock.elapsedRealtimeNanos() - start;
+        });
+
+        long deadline = SystemClock.elapsedRealtime() + TIMEOUT_MS;
+        final Typeface[] applied = new Typeface[1];
+        while (applied[0] == null && SystemClock.elapsedRealtime() < deadline) {
+            SystemClock.sleep(10);
+            instrumentation.runOnMainSync(() -> {
+                Typeface loaded = TypefaceFactory.getLoadedTypeFaceForId(context, TypefaceFactory.RobotoThin);
+                if (loaded != null && view[0].getTypeface() == loaded) {
+                    applied[0] = loaded;
+                }
+            });
+        }
+
+        Log.i(TAG, String.format("main thread: app:typefaceId %.2f ms, getTypeFaceForId %.2f ms",
+                nanos[0] / 1e6, nanos[1] / 1e6));
+        assertNotNull("the face was never applied", applied[0]);
+        assertSame(applied[0], TypefaceFactory.getLoadedTypeFaceForId(context, TypefaceFactory.RobotoThin));
+        assertTrue(nanos[0] < nanos[1]);
+    }
+
+    @Test
+    public void measuresTimeToFirstFrame() throws Exception {
+        Application application = (Application) InstrumentationRegistry.getTargetContext().getApplicationContext();
+        final CountDownLatch firstFrame = new CountDownLatch(1);
+        final long[] firstFrameAt = new long[1];
+        Application.ActivityLifecycleCallbacks callbacks = new FirstFrameCallbacks() {
+            @Override
+            public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+                final ViewTreeObserver observer = activity.getWindow().getDecorView().getViewTreeObserver();
+                observer.addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        if (firstFrame.getCount() > 0) {
+                            firstFrameAt[0] = SystemClock.elapsedRealtimeNanos();
+                            firstFrame.countDown();
+                        }
+                        return true;
+                    }
+                });
+            }
+        };
+        application.registerActivityLifecycleCallbacks(callbacks);
+        try {
+            long start = SystemClock.elapsedRealtimeNanos();
+            activityRule.launchActivity(null);
+            assertTrue(firstFrame.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+            Log.i(TAG, String.format("first frame of %s after %.1f ms",
+                    ParityActivity.class.getSimpleName(), (firstFrameAt[0] - start) / 1e6));
+        } finally {
+            application.unregisterActivityLifecycleCallbacks(callbacks);
+        }
+    }
+
+    private static void deleteExtractedFont(Context context, String name) {
+        File font = new File(context.getCacheDir(), "rawfont-" + name + ".ttf");
+        font.delete();
+        new File(font.getPath() + ".crc").delete();
+    }
+
+    private abstract static class FirstFrameCallbacks implements Application.ActivityLifecycleCallbacks {
+        @Override
+        public void onActivityStarted(Activity activity) {
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+        }
+    }
+}
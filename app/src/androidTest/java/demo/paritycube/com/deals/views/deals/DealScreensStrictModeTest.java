@@ -0,0 +1,65 @@
+package demo.paritycube.com.deals.views.deals;
+
+import android.app.Instrumentation;
+import android.os.StrictMode;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import demo.paritycube.com.deals.ParityActivity;
+
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Opens the deal screens with a StrictMode policy on the main thread that
+ * kills the process on any disk read or write. The cached feeds are read,
+ * the offline fallback is parsed and the first pages are requested while the
+ * test waits; a violation on the main thread crashes the run and fails it.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DealScreensStrictModeTest {
+    private static final long SETTLE_MS = 3000;
+
+    @Rule
+    public ActivityTestRule<ParityActivity> activityRule =
+            new ActivityTestRule<>(ParityActivity.class, false, false);
+
+    private StrictMode.ThreadPolicy previousPolicy;
+
+    @Before
+    public void enableStrictMode() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            previousPolicy = StrictMode.getThreadPolicy();
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .penaltyLog()
+                    .penaltyDeath()
+                    .build());
+        });
+    }
+
+    @After
+    public void restoreThreadPolicy() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(
+                () -> StrictMode.setThreadPolicy(previousPolicy));
+    }
+
+    @Test
+    public void dealScreensDoNoDiskIoOnMainThread() {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        ParityActivity activity = activityRule.launchActivity(null);
+        instrumentation.waitForIdleSync();
+        SystemClock.sleep(SETTLE_MS);
+        instrumentation.waitForIdleSync();
+
+        assertFalse(activity.isFinishing());
+    }
+}
@@ -2,27 +2,31 @@ package demo.paritycube.com.deals;
 
 import android.app.Application;
 import android.content.Context;
-import android.database.Cursor;
+import android.os.StrictMode;
 import android.text.TextUtils;
 
-import com.android.volley.DefaultRetryPolicy;
 import com.android.volley.Request;
 import com.android.volley.RequestQueue;
 import com.android.volley.toolbox.Volley;
-
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.List;
-
+import com.squareup.picasso.Picasso;
+
+import demo.paritycube.com.deals.core.tools.http.AdaptiveRetryPolicy;
+import demo.paritycube.com.deals.core.tools.http.BandwidthEstimator;
+import demo.paritycube.com.deals.core.tools.http.HttpStackFactory;
+import demo.paritycube.com.deals.core.tools.http.HttpValidatorStore;
+import demo.paritycube.com.deals.core.tools.http.JsonSerializer;
+import demo.paritycube.com.deals.core.tools.http.RequestCoalescer;
+import demo.paritycube.com.deals.core.tools.http.RequestScheduler;
+import demo.paritycube.com.deals.core.tools.image.BitmapPool;
+import demo.paritycube.com.deals.core.tools.image.ImagePipeline;
+import demo.paritycube.com.deals.core.tools.session.UserSessionStore;
+import demo.paritycube.com.deals.core.tools.startup.StartupOrchestrator;
 import demo.paritycube.com.deals.db.DBAdapter;
-import demo.paritycube.com.deals.db.DbConstants;
-import demo.paritycube.com.deals.pojo.Datum;
+import demo.paritycube.com.deals.pojo.TopDeals;
 import demo.paritycube.com.deals.pojo.UserInfo;
-import demo.paritycube.com.deals.util.HttpUrlsandKeys;
+import demo.paritycube.com.deals.security.KeyStoreEncryptor;
 import demo.paritycube.com.deals.util.Logger;
+import demo.paritycube.com.deals.util.TypefaceFactory;
 
 /**
  * Created by Sandeep Devhare @APAR on 6/21/2017.
@@ -34,15 +38,29 @@ public class ParityApplication extends Application{
     public static final String TAG = ParityApplication.class.getSimpleName();
     public static Context baseContext;
     private RequestQueue mRequestQueue;
+    private RequestCoalescer mRequestCoalescer;
+    private RequestScheduler mRequestScheduler;
+    private final StartupOrchestrator mStartup = new StartupOrchestrator();
     public static ParityApplication sInstance;
-    UserInfo userDetails;
+    private UserSessionStore mUserSession;
      /* Life-cycle methods */
     @Override
     public void onCreate ()
     {
         super.onCreate();
         sInstance = this;
-
+        if (BuildConfig.DEBUG) {
+            /* Flags any disk or network access that slips back onto the main thread. */
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .detectNetwork()
+                    .penaltyLog()
+                    .build());
+        }
+        Picasso.setSingletonInstance(ImagePipeline.create(this));
+        mUserSession = new UserSessionStore(getDatabase());
+        startWarmUp();
 
     }
 
@@ -50,31 +68,88 @@ public class ParityApplication extends Application{
     public void onLowMemory ()
     {
         super.onLowMemory();
+        getDatabase().releaseIdleConnection();
+        BitmapPool.getInstance().clear();
+    }
 
+    /**
+     * Returns the orchestrator running the warm-up stages, the splash waits
+     * on its critical stages and its timings track the cold start.
+     */
+    public StartupOrchestrator getStartup() {
+        return mStartup;
     }
 
     public static synchronized ParityApplication getInstance() {
         return sInstance;
     }
 
-    public RequestQueue getRequestQueue() {
+    /**
+     * Returns the application scoped database adapter.
+     */
+    public DBAdapter getDatabase() {
+        return DBAdapter.getInstance(this);
+    }
+
+    /**
+     * Returns the store holding the signed-in user in memory, loaded once by
+     * the warm-up.
+     */
+    public UserSessionStore getUserSession() {
+        return mUserSession;
+    }
+
+    /**
+     * Returns the configured image pipeline, the same instance
+     * {@link Picasso#with(Context)} hands out.
+     */
+    public Picasso getPicasso() {
+        return Picasso.with(this);
+    }
+
+    public synchronized RequestQueue getRequestQueue() {
         if (mRequestQueue == null) {
-            mRequestQueue = Volley.newRequestQueue(getApplicationContext());
+            mRequestQueue = Volley.newRequestQueue(getApplicationContext(), HttpStackFactory.create());
         }
 
         return mRequestQueue;
     }
 
+    /**
+     * Returns the coalescer every request goes through, identical feed GETs
+     * already in flight are shared instead of queued again. Its issued and
+     * coalesced counts are read with the {@link #getStartup()} timings.
+     */
+    public RequestCoalescer getRequestCoalescer() {
+        if (mRequestCoalescer == null) {
+            mRequestCoalescer = new RequestCoalescer(getRequestQueue());
+        }
+        return mRequestCoalescer;
+    }
+
+    /**
+     * Returns the scheduler admitting requests to the network by priority
+     * class and link quality.
+     */
+    public RequestScheduler getRequestScheduler() {
+        if (mRequestScheduler == null) {
+            mRequestScheduler = new RequestScheduler(this, getRequestCoalescer(),
+                    BandwidthEstimator.getInstance());
+        }
+        return mRequestScheduler;
+    }
+
     /*Inside addToReqQueue method we are adding calling add() method upon RequestObject and passing request as paramter to it .*/
-    public <T> void addToRequestQueue(Request<T> req, String tag) {
-        req.setTag(TextUtils.isEmpty(tag) ? TAG : tag);
-        req.setRetryPolicy(new DefaultRetryPolicy(
-                HttpUrlsandKeys.MY_SOCKET_TIMEOUT_MS,
-                DefaultRetryPolicy.DEFAULT_MAX_RETRIES,
-                DefaultRetryPolicy.DEFAULT_MAX_RETRIES));
+    public <T> void addToRequestQueue(Request<T> req, Object tag, RequestScheduler.RequestClass requestClass) {
+        req.setTag(tag != null ? tag : TAG);
+        req.setRetryPolicy(AdaptiveRetryPolicy.forRequest(getRequestQueue(), req));
         Logger.info("getRequest queue inside my application called" + req.toString() + "tag" + tag);
-        getRequestQueue().add(req);
+        getRequestScheduler().submit(req, requestClass);
+
+    }
 
+    public <T> void addToRequestQueue(Request<T> req, String tag) {
+        addToRequestQueue(req, TextUtils.isEmpty(tag) ? TAG : tag, RequestScheduler.RequestClass.VISIBLE_FEED);
     }
 
     public <T> void addToRequestQueue(Request<T> req) {
@@ -83,135 +158,46 @@ public class ParityApplication extends Application{
     /*The cancelPendingReq is used for cancelling the request.*/
     public void cancelPendingRequests(Object tag) {
         if (mRequestQueue != null) {
+            getRequestScheduler().cancelAll(tag);
+            getRequestCoalescer().cancelAll(tag);
             mRequestQueue.cancelAll(tag);
         }
     }
 
 
-    public UserInfo getUserDetails() {
-        return userDetails = getUserDetailsDataDetails();
+    /**
+     * Warms up what the first screens need on background threads instead of
+     * lazily on the main thread. The login screen needs the database, the
+     * signed-in user and its fonts (critical), the network stack and the
+     * Gson adapters of the feed, the HTTP validators and the key of the
+     * remembered password come right behind.
+     */
+    private void startWarmUp() {
+        final Context context = getApplicationContext();
+        mStartup.add("database", true, () -> getDatabase().open().close())
+                .add("user", true, mUserSession::load, "database")
+                .add("typefaces", true,
+                        () -> TypefaceFactory.preload(context, TypefaceFactory.COMMON_TYPEFACES))
+                .add("requestQueue", false, this::getRequestQueue)
+                .add("httpValidators", false, () -> HttpValidatorStore.getInstance(context))
+                .add("gson", false, () -> JsonSerializer.getGson().getAdapter(TopDeals.class))
+                .add("keystore", false, () -> KeyStoreEncryptor.warmUp(context))
+                .start();
     }
 
-    public void setUserDetails(UserInfo userDetails) {
-        this.userDetails = userDetails;
-    }
-    public UserInfo getUserDetailsDataDetails() {
-        UserInfo userInfo = null;
-        DBAdapter dbAdapter = new DBAdapter(this);
-        dbAdapter.open();
-        Cursor cursor = dbAdapter.getUserDetailsData();
-        try {
-            while (cursor != null && cursor.moveToNext()) {
-                userInfo = new UserInfo();
-                userInfo.setId(cursor.getString((cursor.getColumnIndex(DbConstants.UserAccountCollumn._ID))));
-                userInfo.setName(cursor.getString((cursor.getColumnIndex(DbConstants.UserAccountCollumn.USERNAME))));
-                userInfo.setEmail(cursor.getString((cursor.getColumnIndex(DbConstants.UserAccountCollumn.USEREMAIL))));
-                userInfo.setLink(cursor.getString((cursor.getColumnIndex(DbConstants.UserAccountCollumn.PROFILELINK))));
-            }
-        } catch (Exception ex) {
-            ex.printStackTrace();
-        } finally {
-            cursor.close();
-            dbAdapter.close();
-        }
-        return userInfo;
-    }
-    public List<Datum> getListOfTopDeals() {
-        List<Datum> list = new ArrayList<Datum>();
-        DBAdapter dbAdapter = new DBAdapter(this);
-        dbAdapter.open();
-        Cursor cursor = dbAdapter.getAllTopDeals();
-        try {
-            while (cursor != null && cursor.moveToNext()) {
-                String dTitle = cursor.getString((cursor.getColumnIndex(DbConstants.TopDealCollumn.TITLE)));
-                String dDesc = cursor.getString((cursor.getColumnIndex(DbConstants.TopDealCollumn.DESCRIPTION)));
-                String dImage = cursor.getString((cursor.getColumnIndex(DbConstants.TopDealCollumn.IMAGEURL)));
-                Datum info = new Datum();
-                info.setTitle(dTitle);
-                info.setDescription(dDesc);
-                info.setImage(dImage);
-                list.add(info);
-            }
-        } catch (Exception ex) {
-            ex.printStackTrace();
-        } finally {
-            cursor.close();
-            dbAdapter.close();
-        }
-        return list;
-    }
-    public List<Datum> getListOfPopularDeals() {
-        List<Datum> list = new ArrayList<Datum>();
-        DBAdapter dbAdapter = new DBAdapter(this);
-        dbAdapter.open();
-        Cursor cursor = dbAdapter.getAllPopularDeals();
-        try {
-            while (cursor != null && cursor.moveToNext()) {
-                String dTitle = cursor.getString((cursor.getColumnIndex(DbConstants.TopDealCollumn.TITLE)));
-                String dDesc = cursor.getString((cursor.getColumnIndex(DbConstants.TopDealCollumn.DESCRIPTION)));
-                String dImage = cursor.getString((cursor.getColumnIndex(DbConstants.TopDealCollumn.IMAGEURL)));
-                Datum info = new Datum();
-                info.setTitle(dTitle);
-                info.setDescription(dDesc);
-                info.setImage(dImage);
-                list.add(info);
-            }
-        } catch (Exception ex) {
-            ex.printStackTrace();
-        } finally {
-            cursor.close();
-            dbAdapter.close();
-        }
-        return list;
+    /**
+     * Returns the signed-in user from memory, null until the warm-up loaded
+     * it, see {@link UserSessionStore}.
+     */
+    public UserInfo getUserDetails() {
+        return mUserSession.getUser();
     }
-    public static String loadJsonData(Context m_context,String fileName){
-        InputStream is = null;
-        BufferedReader br = null;
-        StringBuilder builder =null;
-        try
-        {
-            is = m_context.getAssets().open(fileName);
-            br = new BufferedReader(new InputStreamReader(is));
-
-            builder = new StringBuilder();
-
-            String line;
-            while ((line = br.readLine()) != null)
-            {
-                builder.append(line);
-            }
 
-
-        } catch (IOException e)
-        {
-            e.printStackTrace();
-        }
-        finally
-        {
-            if (br != null)
-            {
-                try
-                {
-                    br.close();
-                }
-                catch (IOException e)
-                {
-                    e.printStackTrace();
-                }
-            }
-
-            if (is != null)
-            {
-                try
-                {
-                    is.close();
-                }
-                catch (IOException e)
-                {
-                    e.printStackTrace();
-                }
-            }
-        }
-        return builder.toString();
+    /**
+     * Signs the user in, or out for null; the database is updated in the
+     * background.
+     */
+    public void setUserDetails(UserInfo userDetails) {
+        mUserSession.setUser(userDetails);
     }
 }
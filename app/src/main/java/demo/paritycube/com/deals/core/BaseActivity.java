@@ -6,7 +6,12 @@ import android.os.Handler;
 import android.support.v4.app.Fragment;
 import android.support.v7.app.AppCompatActivity;
 
+import java.util.concurrent.ExecutorService;
+
 import demo.paritycube.com.deals.R;
+import demo.paritycube.com.deals.core.tools.executor.AppExecutors;
+import demo.paritycube.com.deals.core.tools.executor.TaskHandle;
+import demo.paritycube.com.deals.core.tools.executor.TaskRegistry;
 
 
 public class BaseActivity extends AppCompatActivity
@@ -16,6 +21,7 @@ public class BaseActivity extends AppCompatActivity
   private static final String EXTRA_PRESENTED = "present";
 
   private Handler m_internalHandler;
+  private final TaskRegistry m_backgroundTasks = new TaskRegistry();
 
   /* Fragment life-cycle methods */
 
@@ -29,6 +35,7 @@ public class BaseActivity extends AppCompatActivity
   @Override
   protected void onDestroy ()
   {
+    m_backgroundTasks.cancelAll();
     if (m_internalHandler != null)
     {
       m_internalHandler.removeCallbacksAndMessages(null);
@@ -90,6 +97,26 @@ public class BaseActivity extends AppCompatActivity
     return getSupportFragmentManager().findFragmentById(id);
   }
 
+  /**
+   * Runs the task on the IO pool and hands its result to {@code onResult} on
+   * the main thread. The delivery is dropped once the activity is gone, see
+   * {@link #onDestroy()}.
+   */
+  protected <T> TaskHandle runInBackground (AppExecutors.Task<T> task, AppExecutors.Callback<T> onResult)
+  {
+    return runInBackground(AppExecutors.io(), task, onResult);
+  }
+
+  /**
+   * Same as {@link #runInBackground(AppExecutors.Task, AppExecutors.Callback)}
+   * on the given executor, e.g. {@link AppExecutors#cpu()} for parsing.
+   */
+  protected <T> TaskHandle runInBackground (ExecutorService executor, AppExecutors.Task<T> task,
+                                            AppExecutors.Callback<T> onResult)
+  {
+    return m_backgroundTasks.submit(executor, task, onResult);
+  }
+
   /* Thread confinement methods */
 
   /**
@@ -9,11 +9,20 @@ import android.view.KeyEvent;
 import android.view.View;
 import android.view.inputmethod.InputMethodManager;
 
+import java.util.concurrent.ExecutorService;
+
+import demo.paritycube.com.deals.core.tools.executor.AppExecutors;
+import demo.paritycube.com.deals.core.tools.executor.TaskHandle;
+import demo.paritycube.com.deals.core.tools.executor.TaskRegistry;
+import demo.paritycube.com.deals.core.tools.http.RequestScope;
+
 public class BaseFragment extends BaseControllerFragment
 {
   /* Properties */
 
   private Handler m_internalHandler;
+  private RequestScope m_requestScope;
+  private final TaskRegistry m_backgroundTasks = new TaskRegistry();
 
   /* Fragment life-cycle methods */
 
@@ -28,6 +37,12 @@ public class BaseFragment extends BaseControllerFragment
   public void onDestroyView ()
   {
     hideKeyboard();
+    m_backgroundTasks.cancelAll();
+    if (m_requestScope != null)
+    {
+      m_requestScope.close();
+      m_requestScope = null;
+    }
     super.onDestroyView();
   }
 
@@ -89,6 +104,40 @@ public class BaseFragment extends BaseControllerFragment
     return getChildFragmentManager().findFragmentById(id);
   }
 
+  /**
+   * Returns the request scope of the current view hierarchy. Its requests
+   * are cancelled in {@link #onDestroyView()}; a new scope is handed out for
+   * the next view.
+   */
+  protected RequestScope getRequestScope ()
+  {
+    if (m_requestScope == null)
+    {
+      m_requestScope = new RequestScope();
+    }
+    return m_requestScope;
+  }
+
+  /**
+   * Runs the task on the IO pool and hands its result to {@code onResult} on
+   * the main thread. The delivery is dropped once the view is gone, see
+   * {@link #onDestroyView()}.
+   */
+  protected <T> TaskHandle runInBackground (AppExecutors.Task<T> task, AppExecutors.Callback<T> onResult)
+  {
+    return runInBackground(AppExecutors.io(), task, onResult);
+  }
+
+  /**
+   * Same as {@link #runInBackground(AppExecutors.Task, AppExecutors.Callback)}
+   * on the given executor, e.g. {@link AppExecutors#cpu()} for parsing.
+   */
+  protected <T> TaskHandle runInBackground (ExecutorService executor, AppExecutors.Task<T> task,
+                                            AppExecutors.Callback<T> onResult)
+  {
+    return m_backgroundTasks.submit(executor, task, onResult);
+  }
+
   /* Thread confinement methods */
 
   /**
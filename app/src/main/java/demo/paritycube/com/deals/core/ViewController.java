@@ -9,6 +9,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import demo.paritycube.com.deals.core.tools.http.RequestScope;
+
 /**
  * An abstract class that supports the child controller handling, adheres to
  * common android Fragment life-cycle triggers and propagates life-cycle
@@ -22,6 +24,7 @@ public abstract class ViewController
   /* Properties */
 
   private Handler m_handler;
+  private RequestScope m_requestScope;
   private Activity m_activity;
   private LifeCycleState m_state = LifeCycleState.OnDestroy;
   private List<ViewController> m_childControllers = new ArrayList<>();
@@ -46,6 +49,19 @@ public abstract class ViewController
     return m_activity != null ? m_activity.getResources() : null;
   }
 
+  /**
+   * Returns the request scope of the current view. Its requests are
+   * cancelled in {@link #onDestroyView()}.
+   */
+  protected RequestScope getRequestScope ()
+  {
+    if (m_requestScope == null)
+    {
+      m_requestScope = new RequestScope();
+    }
+    return m_requestScope;
+  }
+
   /* Life-cycle methods */
 
   /**
@@ -176,6 +192,12 @@ public abstract class ViewController
    */
   protected void onDestroyView ()
   {
+    if (m_requestScope != null)
+    {
+      m_requestScope.close();
+      m_requestScope = null;
+    }
+
     LifeCycleState state = LifeCycleState.OnDestroyView;
     List<ViewController> controllers = m_childControllers;
     for (ViewController controller : controllers)
@@ -0,0 +1,202 @@
+package demo.paritycube.com.deals.core.tools.executor;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Application wide executors. Disk work is serialized on a single background
+ * thread so SQLite writes never contend with each other, and results are
+ * handed back through the main thread executor. Reads and file access run on
+ * the bounded IO pool, parsing and other computation on the CPU pool sized to
+ * the cores of the device.
+ */
+public class AppExecutors
+{
+  /* Properties */
+
+  private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+  private static final int IO_POOL_SIZE = 4;
+  private static final int CPU_POOL_SIZE = Math.max(2, Math.min(CPU_COUNT - 1, 4));
+  private static final long KEEP_ALIVE_SECONDS = 30;
+
+  private static final ExecutorService sm_diskIO =
+      Executors.newSingleThreadExecutor(new BackgroundThreadFactory("disk"));
+  private static final ExecutorService sm_io =
+      createPool(IO_POOL_SIZE, new BackgroundThreadFactory("io"));
+  private static final ExecutorService sm_cpu =
+      createPool(CPU_POOL_SIZE, new BackgroundThreadFactory("cpu"));
+  private static final MainThreadExecutor sm_mainThread = new MainThreadExecutor();
+
+  /* Task definitions */
+
+  /**
+   * A unit of background work producing a result.
+   */
+  public interface Task<T>
+  {
+    T run () throws Exception;
+  }
+
+  /**
+   * Receives the result of a {@link Task} on the main thread. A task that
+   * failed delivers null, after its exception has been printed.
+   */
+  public interface Callback<T>
+  {
+    void onResult (T result);
+  }
+
+  /* Property methods */
+
+  /**
+   * Returns the single threaded executor used for database writes.
+   */
+  public static ExecutorService diskIO ()
+  {
+    return sm_diskIO;
+  }
+
+  /**
+   * Returns the bounded pool for database reads and file access.
+   */
+  public static ExecutorService io ()
+  {
+    return sm_io;
+  }
+
+  /**
+   * Returns the pool for parsing and other CPU bound work.
+   */
+  public static ExecutorService cpu ()
+  {
+    return sm_cpu;
+  }
+
+  /**
+   * Returns an executor that posts onto the main thread.
+   */
+  public static Executor mainThread ()
+  {
+    return sm_mainThread;
+  }
+
+  /**
+   * Posts the command onto the main thread to run after the delay.
+   */
+  public static void mainThreadDelayed (Runnable command, long delayMillis)
+  {
+    sm_mainThread.executeDelayed(command, delayMillis);
+  }
+
+  /**
+   * Removes a command posted with {@link #mainThreadDelayed} that did not
+   * run yet.
+   */
+  public static void cancelMainThreadDelayed (Runnable command)
+  {
+    sm_mainThread.cancel(command);
+  }
+
+  /* Public methods */
+
+  /**
+   * Runs the task on the executor and delivers its result to the callback
+   * on the main thread, unless the returned handle was cancelled first.
+   */
+  public static <T> TaskHandle submit (ExecutorService executor, final Task<T> task,
+                                       final Callback<T> callback)
+  {
+    final TaskHandle handle = new TaskHandle();
+    Future<?> future = executor.submit(() -> {
+      if (handle.isCancelled())
+      {
+        return;
+      }
+      T result = null;
+      try
+      {
+        result = task.run();
+      }
+      catch (Exception ex)
+      {
+        ex.printStackTrace();
+      }
+      final T delivered = result;
+      sm_mainThread.execute(() -> {
+        if (!handle.isCancelled() && callback != null)
+        {
+          callback.onResult(delivered);
+        }
+        handle.markDone();
+      });
+    });
+    handle.setFuture(future);
+    return handle;
+  }
+
+  /* Internal methods */
+
+  private static ExecutorService createPool (int size, ThreadFactory threadFactory)
+  {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size,
+        KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), threadFactory);
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /* BackgroundThreadFactory definition */
+
+  private static class BackgroundThreadFactory implements ThreadFactory
+  {
+    private final String m_name;
+    private final AtomicInteger m_count = new AtomicInteger();
+
+    BackgroundThreadFactory (String name)
+    {
+      m_name = name;
+    }
+
+    @Override
+    public Thread newThread (final Runnable runnable)
+    {
+      return new Thread(() -> {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        runnable.run();
+      }, "parity-" + m_name + "-" + m_count.incrementAndGet());
+    }
+  }
+
+  /* MainThreadExecutor definition */
+
+  private static class MainThreadExecutor implements Executor
+  {
+    private final Handler m_handler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public void execute (Runnable command)
+    {
+      m_handler.post(command);
+    }
+
+    void executeDelayed (Runnable command, long delayMillis)
+    {
+      m_handler.postDelayed(command, delayMillis);
+    }
+
+    void cancel (Runnable command)
+    {
+      m_handler.removeCallbacks(command);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package demo.paritycube.com.deals.core.tools.executor;
+
+import java.util.concurrent.Future;
+
+/**
+ * Handle of a task submitted through {@link AppExecutors#submit}. Cancelling
+ * it drops the task if it has not started yet and, in any case, suppresses
+ * the delivery of its result.
+ */
+public class TaskHandle
+{
+  /* Properties */
+
+  private volatile boolean m_cancelled;
+  private volatile boolean m_done;
+  private Future<?> m_future;
+
+  /* Property methods */
+
+  public boolean isCancelled ()
+  {
+    return m_cancelled;
+  }
+
+  /**
+   * Returns true once the result has been delivered or dropped.
+   */
+  public boolean isDone ()
+  {
+    return m_done;
+  }
+
+  /* Public methods */
+
+  public synchronized void cancel ()
+  {
+    m_cancelled = true;
+    if (m_future != null)
+    {
+      m_future.cancel(false);
+    }
+  }
+
+  /* Internal methods */
+
+  synchronized void setFuture (Future<?> future)
+  {
+    m_future = future;
+    if (m_cancelled)
+    {
+      future.cancel(false);
+    }
+  }
+
+  void markDone ()
+  {
+    m_done = true;
+  }
+}
@@ -0,0 +1,50 @@
+package demo.paritycube.com.deals.core.tools.executor;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Keeps the handles of the tasks an owner with a life-cycle, like a screen,
+ * submitted so they can all be cancelled when it goes away. Handles of tasks
+ * that are over are dropped on the next submit. Meant for the main thread.
+ */
+public class TaskRegistry
+{
+  /* Properties */
+
+  private final List<TaskHandle> m_handles = new ArrayList<>();
+
+  /* Public methods */
+
+  /**
+   * Submits the task through {@link AppExecutors#submit} and keeps its
+   * handle until it is over or {@link #cancelAll()} is called.
+   */
+  public <T> TaskHandle submit (ExecutorService executor, AppExecutors.Task<T> task,
+                                AppExecutors.Callback<T> callback)
+  {
+    Iterator<TaskHandle> iterator = m_handles.iterator();
+    while (iterator.hasNext())
+    {
+      TaskHandle handle = iterator.next();
+      if (handle.isDone() || handle.isCancelled())
+      {
+        iterator.remove();
+      }
+    }
+    TaskHandle handle = AppExecutors.submit(executor, task, callback);
+    m_handles.add(handle);
+    return handle;
+  }
+
+  public void cancelAll ()
+  {
+    for (TaskHandle handle : m_handles)
+    {
+      handle.cancel();
+    }
+    m_handles.clear();
+  }
+}
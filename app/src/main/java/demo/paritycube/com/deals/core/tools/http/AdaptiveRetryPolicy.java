@@ -0,0 +1,152 @@
+package demo.paritycube.com.deals.core.tools.http;
+
+import com.android.volley.NoConnectionError;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.RetryPolicy;
+import com.android.volley.TimeoutError;
+import com.android.volley.VolleyError;
+
+import java.util.Random;
+
+import demo.paritycube.com.deals.core.tools.executor.AppExecutors;
+import demo.paritycube.com.deals.util.HttpUrlsandKeys;
+
+/**
+ * Retry policy sized from the latency observed on the endpoint. The first
+ * attempt waits for a multiple of the endpoint's 90th percentile response
+ * time (clamped, or the default socket timeout while there is no history);
+ * each retry doubles that window and is preceded by an exponential backoff
+ * with full jitter, so clients on a bad link do not retry in lockstep.
+ * Requests that are not idempotent are never retried.
+ * <p>
+ * Volley retries straight from the network dispatcher thread. Rather than
+ * wait there, the policy lets the attempt fail and the request, through
+ * {@link #scheduleRetry(Request, VolleyError)}, is added to the queue again
+ * once the backoff is over. Connection failures, which Volley does not
+ * retry, take the same path, so OkHttp's own silent retry stays off.
+ * Without a queue to re-add to, retries happen at once.
+ */
+public class AdaptiveRetryPolicy implements RetryPolicy {
+    private static final int TIMEOUT_PERCENTILE = 90;
+    private static final int TIMEOUT_FACTOR = 2;
+    private static final int MIN_TIMEOUT_MS = 2500;
+    private static final int MAX_TIMEOUT_MS = 20000;
+    private static final int MAX_RETRIES = 2;
+    private static final long BACKOFF_BASE_MS = 300;
+    private static final long BACKOFF_CAP_MS = 3000;
+
+    private static final Random sm_random = new Random();
+
+    private final LatencyTracker m_tracker;
+    private final String m_endpoint;
+    private final int m_maxRetries;
+    private final RequestQueue m_queue;
+    private int m_currentTimeoutMs;
+    private int m_currentRetryCount;
+    private volatile long m_deferredRetryMs = -1;
+
+    public AdaptiveRetryPolicy(LatencyTracker tracker, String endpoint, boolean idempotent,
+                               RequestQueue queue) {
+        m_tracker = tracker;
+        m_endpoint = endpoint;
+        m_maxRetries = idempotent ? MAX_RETRIES : 0;
+        m_queue = queue;
+        m_currentTimeoutMs = initialTimeout(tracker.getPercentile(endpoint, TIMEOUT_PERCENTILE));
+    }
+
+    public static AdaptiveRetryPolicy forRequest(RequestQueue queue, Request<?> request) {
+        return new AdaptiveRetryPolicy(LatencyTracker.getInstance(),
+                LatencyTracker.endpointOf(request.getUrl()), isIdempotent(request.getMethod()), queue);
+    }
+
+    @Override
+    public int getCurrentTimeout() {
+        return m_currentTimeoutMs;
+    }
+
+    @Override
+    public int getCurrentRetryCount() {
+        return m_currentRetryCount;
+    }
+
+    @Override
+    public void retry(VolleyError error) throws VolleyError {
+        if (error instanceof TimeoutError) {
+            /* A timeout is a lower bound for the latency, it still moves the percentile up. */
+            m_tracker.record(m_endpoint, m_currentTimeoutMs);
+        }
+        if (m_currentRetryCount >= m_maxRetries) {
+            throw error;
+        }
+        m_currentRetryCount++;
+        m_currentTimeoutMs = Math.min(m_currentTimeoutMs * 2, MAX_TIMEOUT_MS);
+        if (m_queue != null) {
+            /* Free the dispatcher, the request comes back after the backoff. */
+            m_deferredRetryMs = backoff(m_currentRetryCount);
+            throw error;
+        }
+    }
+
+    /**
+     * Called with the error the request is about to deliver. Returns true
+     * when a retry was scheduled instead, the request is then added to the
+     * queue again after the backoff unless it is cancelled meanwhile.
+     */
+    public boolean scheduleRetry(final Request<?> request, VolleyError error) {
+        long delayMs = m_deferredRetryMs;
+        m_deferredRetryMs = -1;
+        if (delayMs < 0 && error instanceof NoConnectionError && m_queue != null) {
+            try {
+                retry(error);
+            } catch (VolleyError giveUp) {
+                delayMs = m_deferredRetryMs;
+                m_deferredRetryMs = -1;
+            }
+        }
+        if (delayMs < 0 || request.isCanceled()) {
+            return false;
+        }
+        AppExecutors.mainThreadDelayed(() -> {
+            if (!request.isCanceled()) {
+                m_queue.add(request);
+            }
+        }, delayMs);
+        return true;
+    }
+
+    /* Internal methods */
+
+    private static int initialTimeout(long percentileMs) {
+        if (percentileMs < 0) {
+            return HttpUrlsandKeys.MY_SOCKET_TIMEOUT_MS;
+        }
+        long timeout = percentileMs * TIMEOUT_FACTOR;
+        return (int) Math.max(MIN_TIMEOUT_MS, Math.min(timeout, MAX_TIMEOUT_MS));
+    }
+
+    /**
+     * Full jitter: a uniform delay between 0 and the exponential bound of the
+     * attempt.
+     */
+    private static long backoff(int attempt) {
+        long bound = Math.min(BACKOFF_CAP_MS, BACKOFF_BASE_MS << (attempt - 1));
+        synchronized (sm_random) {
+            return (long) (sm_random.nextDouble() * bound);
+        }
+    }
+
+    private static boolean isIdempotent(int method) {
+        switch (method) {
+            case Request.Method.GET:
+            case Request.Method.HEAD:
+            case Request.Method.PUT:
+            case Request.Method.DELETE:
+            case Request.Method.OPTIONS:
+            case Request.Method.TRACE:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package demo.paritycube.com.deals.core.tools.http;
+
+/**
+ * Estimates the download bandwidth from the responses we actually receive, as
+ * an exponential moving average over the transfers large enough to say
+ * something about throughput, and buckets it into a coarse quality class.
+ */
+public class BandwidthEstimator {
+    private static final int MIN_SAMPLE_BYTES = 2048;
+    private static final double SMOOTHING = 0.3;
+
+    private static final double POOR_KBPS = 150;
+    private static final double MODERATE_KBPS = 550;
+    private static final double GOOD_KBPS = 2000;
+
+    private static final BandwidthEstimator sm_instance = new BandwidthEstimator();
+
+    private double m_kbps = -1;
+
+    public enum Quality {
+        UNKNOWN,
+        POOR,
+        MODERATE,
+        GOOD,
+        EXCELLENT
+    }
+
+    public static BandwidthEstimator getInstance() {
+        return sm_instance;
+    }
+
+    public synchronized void record(long bytes, long elapsedMs) {
+        if (bytes < MIN_SAMPLE_BYTES || elapsedMs <= 0) {
+            return;
+        }
+        double kbps = bytes * 8.0 / elapsedMs;
+        m_kbps = m_kbps < 0 ? kbps : SMOOTHING * kbps + (1 - SMOOTHING) * m_kbps;
+    }
+
+    /**
+     * Returns the current estimate in kilobits per second, or -1 before the
+     * first usable sample.
+     */
+    public synchronized double getKbps() {
+        return m_kbps;
+    }
+
+    public synchronized Quality getQuality() {
+        if (m_kbps < 0) {
+            return Quality.UNKNOWN;
+        } else if (m_kbps < POOR_KBPS) {
+            return Quality.POOR;
+        } else if (m_kbps < MODERATE_KBPS) {
+            return Quality.MODERATE;
+        } else if (m_kbps < GOOD_KBPS) {
+            return Quality.GOOD;
+        }
+        return Quality.EXCELLENT;
+    }
+}
@@ -0,0 +1,323 @@
+package demo.paritycube.com.deals.core.tools.http;
+
+import android.os.SystemClock;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.NetworkResponse;
+import com.android.volley.ParseError;
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.VolleyError;
+import com.android.volley.toolbox.HttpHeaderParser;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import demo.paritycube.com.deals.util.HttpUrlsandKeys;
+
+/**
+ * Typed Volley request that parses the response body straight into the given
+ * type with a streaming {@link JsonReader} over the raw network bytes. The
+ * parsing happens on the Volley network thread, so listeners receive a ready
+ * object on the main thread and no intermediate String / JSONObject copies of
+ * the payload are made.
+ * <p>
+ * With {@link #setValidatorStore(HttpValidatorStore, NotModifiedListener)}
+ * the request becomes conditional: a 304 answer is neither parsed nor handed
+ * to the response listener, the not-modified listener is told to keep using
+ * its cached copy instead. The validators of a full answer are not recorded
+ * here: a {@link HeadersListener} receives the response headers and records
+ * them once the body they describe is stored.
+ * <p>
+ * Identical GETs issued through {@link RequestCoalescer} are attached to the
+ * one in flight as followers and receive its parsed result (or error) too.
+ */
+public class GsonRequest<T> extends Request<T> {
+    private static final String DEFAULT_CHARSET = "UTF-8";
+    private static final String HTTP_CONTENT_TYPE = "Content-Type";
+    private static final int HTTP_NOT_MODIFIED = 304;
+
+    private final Type m_type;
+    private Response.Listener<T> listener;
+    private HeadersListener<T> m_headersListener;
+    private volatile Map<String, String> m_responseHeaders;
+    private HttpValidatorStore m_validatorStore;
+    private NotModifiedListener m_notModifiedListener;
+    private volatile boolean m_notModified;
+    private volatile long m_attemptStartMs;
+    private Priority m_priority = Priority.NORMAL;
+    private OnFinishedListener m_finishedListener;
+    private boolean m_finished;
+    private RequestCoalescer m_coalescer;
+    private final List<GsonRequest<T>> m_followers = new ArrayList<>();
+
+    public interface NotModifiedListener {
+        void onNotModified();
+    }
+
+    /**
+     * Receives the parsed result along with the headers of the response.
+     */
+    public interface HeadersListener<T> {
+        void onResponse(T response, Map<String, String> headers);
+    }
+
+    /**
+     * Told once when the request has delivered its result or error, or has
+     * been cancelled.
+     */
+    public interface OnFinishedListener {
+        void onRequestFinished();
+    }
+
+    public GsonRequest(int method, String url, Type type,
+                       Response.Listener<T> listener,
+                       Response.ErrorListener errorListener) {
+        super(method, url, errorListener);
+        m_type = type;
+        this.listener = listener;
+    }
+
+    public GsonRequest(String url, Class<T> cls,
+                       Response.Listener<T> listener,
+                       Response.ErrorListener errorListener) {
+        this(Method.GET, url, cls, listener, errorListener);
+    }
+
+    public GsonRequest(String url, Class<T> cls,
+                       HeadersListener<T> listener,
+                       Response.ErrorListener errorListener) {
+        this(Method.GET, url, cls, (Response.Listener<T>) null, errorListener);
+        m_headersListener = listener;
+    }
+
+    /**
+     * Sends the validators stored for the url. Volley's own cache is turned
+     * off for the request, our caller keeps the parsed copy the validators
+     * describe, and records the validators of a full response only once that
+     * copy is stored.
+     */
+    public GsonRequest<T> setValidatorStore(HttpValidatorStore store, NotModifiedListener notModifiedListener) {
+        m_validatorStore = store;
+        m_notModifiedListener = notModifiedListener;
+        setShouldCache(false);
+        return this;
+    }
+
+    public void setPriority(Priority priority) {
+        m_priority = priority;
+    }
+
+    @Override
+    public Priority getPriority() {
+        return m_priority;
+    }
+
+    public void setOnFinishedListener(OnFinishedListener listener) {
+        m_finishedListener = listener;
+    }
+
+    @Override
+    public Map<String, String> getHeaders() throws AuthFailureError {
+        /* The stack asks for the headers right before every attempt goes out. */
+        m_attemptStartMs = SystemClock.elapsedRealtime();
+        HashMap<String, String> headers = new HashMap<>();
+        headers.put("Accept", "application/json; charset=utf-8");
+        headers.put("X-Desidime-Client", HttpUrlsandKeys.appAuthKey);
+        if (m_validatorStore != null) {
+            m_validatorStore.addConditionalHeaders(getUrl(), headers);
+        }
+        return headers;
+    }
+
+    @Override
+    protected Response<T> parseNetworkResponse(NetworkResponse response) {
+        if (m_attemptStartMs > 0) {
+            long elapsedMs = SystemClock.elapsedRealtime() - m_attemptStartMs;
+            LatencyTracker.getInstance().record(LatencyTracker.endpointOf(getUrl()), elapsedMs);
+            if (response.data != null) {
+                BandwidthEstimator.getInstance().record(response.data.length, elapsedMs);
+            }
+        }
+        if (m_validatorStore != null && (response.notModified || response.statusCode == HTTP_NOT_MODIFIED)) {
+            m_notModified = true;
+            return Response.success(null, null);
+        }
+        if (response.data == null || response.data.length == 0) {
+            return Response.error(new ParseError(response));
+        }
+        try {
+            T result = parse(response.data, response.headers, m_type);
+            m_responseHeaders = response.headers;
+            return Response.success(result, HttpHeaderParser.parseCacheHeaders(response));
+        } catch (UnsupportedEncodingException e) {
+            return Response.error(new ParseError(e));
+        } catch (JsonParseException e) {
+            return Response.error(new ParseError(e));
+        }
+    }
+
+    /**
+     * Parses a response body into the type with a {@link JsonReader} reading
+     * the bytes directly, in the charset the headers declare.
+     */
+    static <T> T parse(byte[] data, Map<String, String> headers, Type type)
+            throws UnsupportedEncodingException {
+        JsonReader reader = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(data), parseCharset(headers)));
+        try {
+            return JsonSerializer.serialize(reader, type);
+        } finally {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    protected void deliverResponse(T response) {
+        boolean notModified = m_notModified;
+        List<GsonRequest<T>> followers = finishCoalescing();
+        deliverToListener(response, notModified);
+        notifyFinished();
+        for (GsonRequest<T> follower : followers) {
+            if (!follower.isCanceled()) {
+                follower.m_responseHeaders = m_responseHeaders;
+                follower.deliverToListener(response, notModified);
+                follower.notifyFinished();
+            }
+        }
+    }
+
+    @Override
+    public void deliverError(VolleyError error) {
+        if (getRetryPolicy() instanceof AdaptiveRetryPolicy
+                && ((AdaptiveRetryPolicy) getRetryPolicy()).scheduleRetry(this, error)) {
+            /* Still in flight: followers stay attached and the scheduler slot stays taken. */
+            return;
+        }
+        List<GsonRequest<T>> followers = finishCoalescing();
+        super.deliverError(error);
+        notifyFinished();
+        for (GsonRequest<T> follower : followers) {
+            if (!follower.isCanceled()) {
+                follower.deliverError(error);
+            }
+        }
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        /* Let go of the screen behind the listeners while Volley still holds the request. */
+        listener = null;
+        m_headersListener = null;
+        m_notModifiedListener = null;
+        if (m_coalescer != null) {
+            m_coalescer.onCanceled(this);
+        }
+        notifyFinished();
+    }
+
+    /* Coalescing */
+
+    /**
+     * Requests with the same key produce the same result and can share one
+     * network round trip.
+     */
+    String getCoalescingKey() {
+        return getMethod() + " " + getUrl() + " " + m_type
+                + (m_validatorStore != null ? " conditional" : "");
+    }
+
+    void setCoalescer(RequestCoalescer coalescer) {
+        m_coalescer = coalescer;
+    }
+
+    synchronized void addFollower(GsonRequest<T> follower) {
+        m_followers.add(follower);
+    }
+
+    synchronized List<GsonRequest<T>> takeFollowers() {
+        List<GsonRequest<T>> followers = new ArrayList<>(m_followers);
+        m_followers.clear();
+        return followers;
+    }
+
+    synchronized void cancelFollowers(Object tag) {
+        Iterator<GsonRequest<T>> iterator = m_followers.iterator();
+        while (iterator.hasNext()) {
+            GsonRequest<T> follower = iterator.next();
+            if (tag.equals(follower.getTag())) {
+                follower.cancel();
+                iterator.remove();
+            }
+        }
+    }
+
+    private List<GsonRequest<T>> finishCoalescing() {
+        if (m_coalescer != null) {
+            m_coalescer.onFinished(this);
+        }
+        return takeFollowers();
+    }
+
+    private void notifyFinished() {
+        OnFinishedListener listener;
+        synchronized (this) {
+            if (m_finished) {
+                return;
+            }
+            m_finished = true;
+            listener = m_finishedListener;
+        }
+        if (listener != null) {
+            listener.onRequestFinished();
+        }
+    }
+
+    private void deliverToListener(T response, boolean notModified) {
+        if (isCanceled()) {
+            return;
+        }
+        if (notModified) {
+            m_notModifiedListener.onNotModified();
+            return;
+        }
+        if (m_headersListener != null) {
+            m_headersListener.onResponse(response, m_responseHeaders);
+        } else {
+            listener.onResponse(response);
+        }
+    }
+
+    /**
+     * Returns the charset declared in the Content-Type header, falling back to
+     * UTF-8 which is the JSON default (Volley itself falls back to ISO-8859-1).
+     */
+    private static String parseCharset(Map<String, String> headers) {
+        String contentType = headers != null ? headers.get(HTTP_CONTENT_TYPE) : null;
+        if (contentType != null) {
+            String[] params = contentType.split(";");
+            for (int i = 1; i < params.length; i++) {
+                String[] pair = params[i].trim().split("=");
+                if (pair.length == 2 && pair[0].equalsIgnoreCase("charset")) {
+                    return pair[1];
+                }
+            }
+        }
+        return DEFAULT_CHARSET;
+    }
+}
@@ -0,0 +1,83 @@
+package demo.paritycube.com.deals.core.tools.http;
+
+import com.android.volley.toolbox.HttpStack;
+import com.android.volley.toolbox.HurlStack;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * Builds the {@link HttpStack} behind the Volley queue. The OkHttp transport
+ * keeps idle connections alive in a tunable pool, speaks HTTP/2 wherever the
+ * server offers it over TLS and asks for gzip, decoding it transparently. The
+ * platform transport is Volley's default {@link HurlStack} and is kept as a
+ * fallback.
+ */
+public class HttpStackFactory
+{
+  /* Properties */
+
+  public enum Transport
+  {
+    PLATFORM,
+    OKHTTP
+  }
+
+  public static final Transport DEFAULT_TRANSPORT = Transport.OKHTTP;
+  public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+  public static final long DEFAULT_KEEP_ALIVE_MS = TimeUnit.MINUTES.toMillis(5);
+
+  private static OkHttpClient sm_okHttpClient;
+
+  /* Public methods */
+
+  public static HttpStack create ()
+  {
+    return create(DEFAULT_TRANSPORT);
+  }
+
+  public static HttpStack create (Transport transport)
+  {
+    switch (transport)
+    {
+      case OKHTTP:
+        return new OkHttpStack(getOkHttpClient());
+      default:
+        return new HurlStack();
+    }
+  }
+
+  /**
+   * Returns the application wide client, created with the default pool.
+   * Anything else talking HTTP should derive from it with
+   * {@link OkHttpClient#newBuilder()} so the pool and dispatcher are shared.
+   */
+  public static synchronized OkHttpClient getOkHttpClient ()
+  {
+    if (sm_okHttpClient == null)
+    {
+      sm_okHttpClient = createOkHttpClient(DEFAULT_MAX_IDLE_CONNECTIONS, DEFAULT_KEEP_ALIVE_MS);
+    }
+    return sm_okHttpClient;
+  }
+
+  /**
+   * Builds a client with its own connection pool keeping up to
+   * {@code maxIdleConnections} idle connections for {@code keepAliveMs}.
+   * Timeouts are left to Volley, which sets them per request, and retries to
+   * {@link AdaptiveRetryPolicy}, so a failed connection is not silently
+   * tried again on top of its backoff.
+   */
+  public static OkHttpClient createOkHttpClient (int maxIdleConnections, long keepAliveMs)
+  {
+    return new OkHttpClient.Builder()
+        .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMs, TimeUnit.MILLISECONDS))
+        .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+        .retryOnConnectionFailure(false)
+        .build();
+  }
+}
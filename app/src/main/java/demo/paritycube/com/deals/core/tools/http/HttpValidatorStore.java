@@ -0,0 +1,113 @@
+package demo.paritycube.com.deals.core.tools.http;
+
+import android.content.Context;
+
+import java.util.Map;
+
+import demo.paritycube.com.deals.util.PreferenceStore;
+
+/**
+ * Persists the ETag / Last-Modified validators returned for each URL so the
+ * next request for it can be made conditional. The values are kept verbatim,
+ * as the server sent them, and survive process restarts.
+ *
+ * The file is read through a {@link PreferenceStore}, which loads it on the
+ * IO pool, so asking for the store or dropping validators is safe on the
+ * main thread; headers are read when Volley builds the request, on its
+ * network thread.
+ */
+public class HttpValidatorStore
+{
+  /* Properties */
+
+  public static final String HEADER_ETAG = "ETag";
+  public static final String HEADER_LAST_MODIFIED = "Last-Modified";
+  public static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+  public static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+
+  private static final String PREFS_NAME = "http_validators";
+  private static final String KEY_ETAG = "etag:";
+  private static final String KEY_LAST_MODIFIED = "last_modified:";
+
+  private static HttpValidatorStore sm_instance;
+
+  private final PreferenceStore m_prefs;
+
+  /* Initializations */
+
+  private HttpValidatorStore (Context context)
+  {
+    m_prefs = PreferenceStore.getInstance(context, PREFS_NAME);
+  }
+
+  public static synchronized HttpValidatorStore getInstance (Context context)
+  {
+    if (sm_instance == null)
+    {
+      sm_instance = new HttpValidatorStore(context);
+    }
+    return sm_instance;
+  }
+
+  /* Public methods */
+
+  /**
+   * Adds If-None-Match / If-Modified-Since for the validators stored for the
+   * url, if any.
+   */
+  public void addConditionalHeaders (String url, Map<String, String> headers)
+  {
+    String etag = m_prefs.getString(KEY_ETAG + url, null);
+    String lastModified = m_prefs.getString(KEY_LAST_MODIFIED + url, null);
+    if (etag != null)
+    {
+      headers.put(HEADER_IF_NONE_MATCH, etag);
+    }
+    if (lastModified != null)
+    {
+      headers.put(HEADER_IF_MODIFIED_SINCE, lastModified);
+    }
+  }
+
+  /**
+   * Records the validators of a full (200) response for the url. Validators
+   * the response does not carry are dropped.
+   */
+  public void update (String url, Map<String, String> responseHeaders)
+  {
+    m_prefs.edit()
+        .putString(KEY_ETAG + url, findHeader(responseHeaders, HEADER_ETAG))
+        .putString(KEY_LAST_MODIFIED + url, findHeader(responseHeaders, HEADER_LAST_MODIFIED))
+        .apply();
+  }
+
+  /**
+   * Forgets the validators of the url, e.g. when the cached copy they
+   * describe is gone and a 304 could not be served.
+   */
+  public void remove (String url)
+  {
+    m_prefs.edit()
+        .remove(KEY_ETAG + url)
+        .remove(KEY_LAST_MODIFIED + url)
+        .apply();
+  }
+
+  /* Internal methods */
+
+  private static String findHeader (Map<String, String> headers, String name)
+  {
+    if (headers == null)
+    {
+      return null;
+    }
+    for (Map.Entry<String, String> header : headers.entrySet())
+    {
+      if (name.equalsIgnoreCase(header.getKey()))
+      {
+        return header.getValue();
+      }
+    }
+    return null;
+  }
+}
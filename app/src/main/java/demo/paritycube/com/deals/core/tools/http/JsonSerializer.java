@@ -3,16 +3,22 @@ package demo.paritycube.com.deals.core.tools.http;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.LongSerializationPolicy;
+import com.google.gson.stream.JsonReader;
 
 import java.lang.reflect.Type;
 
+import demo.paritycube.com.deals.pojo.adapter.PojoTypeAdapterFactory;
+
 public class JsonSerializer
 {
-  private static Gson getGson ()
+  /**
+   * Returns the process wide {@link Gson} instance. Gson is immutable and
+   * thread-safe once built, so the instance (and its adapter cache) is shared
+   * by every caller instead of being rebuilt per call.
+   */
+  public static Gson getGson ()
   {
-    GsonBuilder builder = new GsonBuilder();
-    builder.setLongSerializationPolicy(LongSerializationPolicy.STRING);
-    return builder.create();
+    return GsonHolder.INSTANCE;
   }
 
   public static <T> T serialize (String rawData, Class<T> cls)
@@ -27,6 +33,12 @@ public class JsonSerializer
     return gson.fromJson(rawData, type);
   }
 
+  public static <T> T serialize (JsonReader reader, Type type)
+  {
+    Gson gson = getGson();
+    return gson.fromJson(reader, type);
+  }
+
   public static String deserialize (Object src)
   {
     Gson gson = getGson();
@@ -39,4 +51,14 @@ public class JsonSerializer
     String rawData = gson.toJson(src);
     return gson.fromJson(rawData, type);
   }
+
+  /* Lazy holder */
+
+  private static class GsonHolder
+  {
+    static final Gson INSTANCE = new GsonBuilder()
+        .setLongSerializationPolicy(LongSerializationPolicy.STRING)
+        .registerTypeAdapterFactory(new PojoTypeAdapterFactory())
+        .create();
+  }
 }
@@ -0,0 +1,67 @@
+package demo.paritycube.com.deals.core.tools.http;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the most recent response times of every endpoint (scheme, host and
+ * path, without the query) and answers percentile queries over them. Used by
+ * {@link AdaptiveRetryPolicy} to size timeouts to the link actually in use.
+ */
+public class LatencyTracker {
+    private static final int WINDOW_SIZE = 32;
+
+    private static final LatencyTracker sm_instance = new LatencyTracker();
+
+    private final Map<String, Window> m_windows = new HashMap<>();
+
+    public static LatencyTracker getInstance() {
+        return sm_instance;
+    }
+
+    public static String endpointOf(String url) {
+        int query = url.indexOf('?');
+        return query < 0 ? url : url.substring(0, query);
+    }
+
+    public synchronized void record(String endpoint, long latencyMs) {
+        Window window = m_windows.get(endpoint);
+        if (window == null) {
+            window = new Window();
+            m_windows.put(endpoint, window);
+        }
+        window.add(latencyMs);
+    }
+
+    /**
+     * Returns the given percentile (0 - 100) of the recorded latencies of the
+     * endpoint, or -1 when nothing has been recorded yet.
+     */
+    public synchronized long getPercentile(String endpoint, int percentile) {
+        Window window = m_windows.get(endpoint);
+        if (window == null || window.m_count == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(window.m_samples, window.m_count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    /* Window definition */
+
+    private static class Window {
+        final long[] m_samples = new long[WINDOW_SIZE];
+        int m_count;
+        int m_next;
+
+        void add(long latencyMs) {
+            m_samples[m_next] = latencyMs;
+            m_next = (m_next + 1) % WINDOW_SIZE;
+            if (m_count < WINDOW_SIZE) {
+                m_count++;
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package demo.paritycube.com.deals.core.tools.http;
+
+import com.android.volley.toolbox.HurlStack;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import okhttp3.OkHttpClient;
+import okhttp3.OkUrlFactory;
+
+/**
+ * Volley {@link HurlStack} whose connections are opened through a shared
+ * {@link OkHttpClient}, so requests re-use its connection pool, negotiate
+ * HTTP/2 over TLS and get gzip bodies decoded transparently. Volley keeps
+ * applying its per request timeouts, headers and body on the connection.
+ */
+public class OkHttpStack extends HurlStack {
+    private final OkUrlFactory m_urlFactory;
+
+    public OkHttpStack(OkHttpClient client) {
+        m_urlFactory = new OkUrlFactory(client);
+    }
+
+    @Override
+    protected HttpURLConnection createConnection(URL url) throws IOException {
+        return m_urlFactory.open(url);
+    }
+}
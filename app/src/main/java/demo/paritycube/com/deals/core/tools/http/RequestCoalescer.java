@@ -0,0 +1,174 @@
+package demo.paritycube.com.deals.core.tools.http;
+
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import demo.paritycube.com.deals.core.tools.executor.AppExecutors;
+import demo.paritycube.com.deals.util.Logger;
+
+/**
+ * Sits in front of the Volley queue and de-duplicates identical in-flight
+ * GETs. A {@link GsonRequest} whose method, url and result type match one
+ * that is already in flight is not queued; it is attached to the running
+ * request and receives the same parsed result. Every other request goes
+ * straight to the queue.
+ * <p>
+ * When the request in flight is cancelled, a follower takes its place. With
+ * an {@link Admission} set, that follower is handed back to it and waits for
+ * a slot like any new request instead of going straight to the network.
+ */
+public class RequestCoalescer {
+    /**
+     * Takes back a follower that has to go to the network itself.
+     */
+    interface Admission {
+        /**
+         * Returns false when the request cannot be queued through it, the
+         * coalescer then issues the request directly.
+         */
+        boolean readmit(GsonRequest<?> request);
+    }
+
+    private final RequestQueue m_queue;
+    private final Map<String, GsonRequest<?>> m_inFlight = new HashMap<>();
+    private final AtomicInteger m_issuedCount = new AtomicInteger();
+    private final AtomicInteger m_coalescedCount = new AtomicInteger();
+    private volatile Admission m_admission;
+
+    public RequestCoalescer(RequestQueue queue) {
+        m_queue = queue;
+    }
+
+    void setAdmission(Admission admission) {
+        m_admission = admission;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Request<T> add(Request<T> request) {
+        if (!(request instanceof GsonRequest) || request.getMethod() != Request.Method.GET) {
+            return m_queue.add(request);
+        }
+        GsonRequest<T> gsonRequest = (GsonRequest<T>) request;
+        if (attach(gsonRequest, true)) {
+            return request;
+        }
+        m_issuedCount.incrementAndGet();
+        return m_queue.add(request);
+    }
+
+    /**
+     * Attaches the request to an identical GET in flight and returns true,
+     * otherwise leaves it alone and returns false. Lets a scheduler coalesce
+     * a request before spending one of its slots on it.
+     */
+    boolean attachToInFlight(GsonRequest<?> request) {
+        return request.getMethod() == Request.Method.GET && attach(request, false);
+    }
+
+    /**
+     * Cancels the attached followers and the requests in flight carrying the
+     * tag. A request waiting out its retry backoff is in none of Volley's
+     * queues, so cancelling through the queue alone would miss it.
+     */
+    public void cancelAll(Object tag) {
+        List<GsonRequest<?>> tagged = new ArrayList<>();
+        synchronized (m_inFlight) {
+            for (GsonRequest<?> inFlight : m_inFlight.values()) {
+                inFlight.cancelFollowers(tag);
+                if (tag.equals(inFlight.getTag())) {
+                    tagged.add(inFlight);
+                }
+            }
+        }
+        for (GsonRequest<?> request : tagged) {
+            request.cancel();
+        }
+    }
+
+    /* Metrics */
+
+    /**
+     * Number of requests that actually went to the network queue.
+     */
+    public int getIssuedCount() {
+        return m_issuedCount.get();
+    }
+
+    /**
+     * Number of requests served by attaching to an identical one in flight.
+     */
+    public int getCoalescedCount() {
+        return m_coalescedCount.get();
+    }
+
+    /* Callbacks from GsonRequest */
+
+    void onFinished(GsonRequest<?> request) {
+        synchronized (m_inFlight) {
+            String key = request.getCoalescingKey();
+            if (m_inFlight.get(key) == request) {
+                m_inFlight.remove(key);
+            }
+        }
+    }
+
+    /**
+     * The request in flight was cancelled by its owner. Its followers still
+     * want the result, so the first one still alive is issued in its place,
+     * through the admission when there is one, and the others attach to it.
+     * This runs on the next main loop turn since Volley cancels while
+     * iterating its queue.
+     */
+    <T> void onCanceled(GsonRequest<T> request) {
+        onFinished(request);
+        final List<GsonRequest<T>> followers = request.takeFollowers();
+        if (followers.isEmpty()) {
+            return;
+        }
+        AppExecutors.mainThread().execute(() -> {
+            for (GsonRequest<T> follower : followers) {
+                if (follower.isCanceled()) {
+                    continue;
+                }
+                Admission admission = m_admission;
+                if (admission == null || !admission.readmit(follower)) {
+                    add(follower);
+                }
+            }
+        });
+    }
+
+    /* Internal methods */
+
+    /**
+     * Attaches the request to an identical one in flight and returns true.
+     * Otherwise returns false, after registering the request as the one in
+     * flight when {@code register} is set.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> boolean attach(GsonRequest<T> request, boolean register) {
+        String key = request.getCoalescingKey();
+        synchronized (m_inFlight) {
+            GsonRequest<T> inFlight = (GsonRequest<T>) m_inFlight.get(key);
+            if (inFlight != null && inFlight != request && !inFlight.isCanceled()) {
+                inFlight.addFollower(request);
+            } else {
+                if (register) {
+                    request.setCoalescer(this);
+                    m_inFlight.put(key, request);
+                }
+                return false;
+            }
+        }
+        int coalesced = m_coalescedCount.incrementAndGet();
+        Logger.debug("Coalesced request " + request.getUrl() + " (" + coalesced
+                + " coalesced / " + m_issuedCount.get() + " issued)");
+        return true;
+    }
+}
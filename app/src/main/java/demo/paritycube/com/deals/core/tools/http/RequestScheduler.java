@@ -0,0 +1,260 @@
+package demo.paritycube.com.deals.core.tools.http;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.telephony.TelephonyManager;
+
+import com.android.volley.Request;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Admits requests to the network in order of their {@link RequestClass}. The
+ * number of requests in flight is capped by the estimated link quality, so on
+ * a poor connection the request the user is waiting for is not queued behind
+ * a burst of background work, and prefetch traffic waits on a metered link
+ * until nothing else is in flight. Images go through Picasso's own
+ * dispatcher and are not scheduled here.
+ * <p>
+ * Only {@link GsonRequest}s report when they finish and can be scheduled,
+ * other requests are handed straight to the {@link RequestCoalescer}. A
+ * waiting request identical to one in flight is attached to it as a follower
+ * without taking a slot, so on a link that allows a single request a
+ * duplicate feed GET still shares the round trip instead of queueing for a
+ * second one. A follower that has to take over a cancelled request comes
+ * back here and is admitted again in its class.
+ */
+public class RequestScheduler {
+    public enum RequestClass {
+        VISIBLE_FEED(Request.Priority.HIGH),
+        PREFETCH(Request.Priority.LOW);
+
+        final Request.Priority m_priority;
+
+        RequestClass(Request.Priority priority) {
+            m_priority = priority;
+        }
+
+        boolean isBackground() {
+            return this == PREFETCH;
+        }
+    }
+
+    private final Context m_context;
+    private final RequestCoalescer m_coalescer;
+    private final BandwidthEstimator m_estimator;
+    private final PriorityQueue<Pending> m_pending = new PriorityQueue<>();
+    private final Map<GsonRequest<?>, Pending> m_admitted = new IdentityHashMap<>();
+    private int m_inFlight;
+    private long m_sequence;
+
+    public RequestScheduler(Context context, RequestCoalescer coalescer, BandwidthEstimator estimator) {
+        m_context = context.getApplicationContext();
+        m_coalescer = coalescer;
+        m_estimator = estimator;
+        m_coalescer.setAdmission(this::readmit);
+    }
+
+    public void submit(Request<?> request, RequestClass requestClass) {
+        if (!(request instanceof GsonRequest)) {
+            m_coalescer.add(request);
+            return;
+        }
+        GsonRequest<?> gsonRequest = (GsonRequest<?>) request;
+        gsonRequest.setPriority(requestClass.m_priority);
+        synchronized (this) {
+            m_pending.add(new Pending(gsonRequest, requestClass, m_sequence++));
+        }
+        drain();
+    }
+
+    /**
+     * Moves a request that is still waiting for admission to another class,
+     * e.g. a prefetch the user has scrolled up to. A request already admitted
+     * is left alone: Volley's queues order on the priority, and changing it
+     * while the request sits in one would corrupt their heap.
+     */
+    public void promote(Request<?> request, RequestClass requestClass) {
+        if (!(request instanceof GsonRequest)) {
+            return;
+        }
+        GsonRequest<?> gsonRequest = (GsonRequest<?>) request;
+        synchronized (this) {
+            Iterator<Pending> iterator = m_pending.iterator();
+            while (iterator.hasNext()) {
+                Pending pending = iterator.next();
+                if (pending.m_request == gsonRequest) {
+                    iterator.remove();
+                    gsonRequest.setPriority(requestClass.m_priority);
+                    m_pending.add(new Pending(gsonRequest, requestClass, pending.m_sequence));
+                    break;
+                }
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Drops the requests carrying the tag that have not been admitted yet.
+     */
+    public void cancelAll(Object tag) {
+        synchronized (this) {
+            Iterator<Pending> iterator = m_pending.iterator();
+            while (iterator.hasNext()) {
+                Pending pending = iterator.next();
+                if (tag.equals(pending.m_request.getTag())) {
+                    pending.m_request.cancel();
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /* Internal methods */
+
+    private void drain() {
+        while (true) {
+            final GsonRequest<?> next;
+            synchronized (this) {
+                attachDuplicates();
+                Pending pending = m_pending.peek();
+                if (pending == null) {
+                    return;
+                }
+                if (pending.m_request.isCanceled()) {
+                    m_pending.poll();
+                    continue;
+                }
+                if (m_inFlight >= getMaxConcurrency()
+                        || (pending.m_class.isBackground() && m_inFlight > 0 && isMetered())) {
+                    return;
+                }
+                m_pending.poll();
+                m_inFlight++;
+                next = pending.m_request;
+                m_admitted.put(next, pending);
+            }
+            next.setOnFinishedListener(() -> onFinished(next));
+            m_coalescer.add(next);
+        }
+    }
+
+    /**
+     * Hands the waiting requests that match one in flight to the coalescer,
+     * which attaches them to it.
+     */
+    private void attachDuplicates() {
+        Iterator<Pending> iterator = m_pending.iterator();
+        while (iterator.hasNext()) {
+            Pending pending = iterator.next();
+            if (!pending.m_request.isCanceled() && m_coalescer.attachToInFlight(pending.m_request)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void onFinished(GsonRequest<?> request) {
+        synchronized (this) {
+            if (m_admitted.remove(request) != null) {
+                m_inFlight--;
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Gives up the slot of an admitted request and queues it again in its
+     * class, keeping its place among the requests submitted after it. A
+     * request attached before admission is queued in the class its priority
+     * was set from.
+     */
+    private boolean readmit(GsonRequest<?> request) {
+        synchronized (this) {
+            Pending pending = m_admitted.remove(request);
+            if (pending != null) {
+                m_inFlight--;
+            } else {
+                RequestClass requestClass = request.getPriority() == RequestClass.PREFETCH.m_priority
+                        ? RequestClass.PREFETCH
+                        : RequestClass.VISIBLE_FEED;
+                pending = new Pending(request, requestClass, m_sequence++);
+            }
+            m_pending.add(pending);
+        }
+        drain();
+        return true;
+    }
+
+    private int getMaxConcurrency() {
+        switch (m_estimator.getQuality()) {
+            case POOR:
+                return 1;
+            case MODERATE:
+                return 2;
+            case GOOD:
+                return 3;
+            case EXCELLENT:
+                return 4;
+            default:
+                return getConcurrencyForConnectionType();
+        }
+    }
+
+    /**
+     * Before any bandwidth has been measured, guesses from the radio in use.
+     */
+    private int getConcurrencyForConnectionType() {
+        NetworkInfo info = getActiveNetworkInfo();
+        if (info == null || info.getType() != ConnectivityManager.TYPE_MOBILE) {
+            return 4;
+        }
+        switch (info.getSubtype()) {
+            case TelephonyManager.NETWORK_TYPE_GPRS:
+            case TelephonyManager.NETWORK_TYPE_EDGE:
+            case TelephonyManager.NETWORK_TYPE_CDMA:
+            case TelephonyManager.NETWORK_TYPE_1xRTT:
+            case TelephonyManager.NETWORK_TYPE_IDEN:
+                return 1;
+            case TelephonyManager.NETWORK_TYPE_LTE:
+                return 4;
+            default:
+                return 2;
+        }
+    }
+
+    private boolean isMetered() {
+        ConnectivityManager cm = (ConnectivityManager) m_context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        return cm == null || cm.isActiveNetworkMetered();
+    }
+
+    private NetworkInfo getActiveNetworkInfo() {
+        ConnectivityManager cm = (ConnectivityManager) m_context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        return cm != null ? cm.getActiveNetworkInfo() : null;
+    }
+
+    /* Pending definition */
+
+    private static class Pending implements Comparable<Pending> {
+        final GsonRequest<?> m_request;
+        final RequestClass m_class;
+        final long m_sequence;
+
+        Pending(GsonRequest<?> request, RequestClass requestClass, long sequence) {
+            m_request = request;
+            m_class = requestClass;
+            m_sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Pending other) {
+            if (m_class != other.m_class) {
+                return m_class.ordinal() - other.m_class.ordinal();
+            }
+            return m_sequence < other.m_sequence ? -1 : (m_sequence == other.m_sequence ? 0 : 1);
+        }
+    }
+}
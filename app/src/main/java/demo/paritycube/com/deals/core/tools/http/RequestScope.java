@@ -0,0 +1,53 @@
+package demo.paritycube.com.deals.core.tools.http;
+
+import com.android.volley.Request;
+
+import demo.paritycube.com.deals.ParityApplication;
+
+/**
+ * Groups the requests issued on behalf of one screen under a tag of its own,
+ * so they can all be cancelled when the screen's views go away. Once
+ * {@link #close()} has been called the scope is inactive: new requests are
+ * dropped and callers are expected to check {@link #isActive()} before
+ * touching any view with a late result.
+ */
+public class RequestScope
+{
+  /* Properties */
+
+  private final Object m_tag = new Object();
+  private volatile boolean m_active = true;
+
+  /* Property methods */
+
+  public Object getTag ()
+  {
+    return m_tag;
+  }
+
+  public boolean isActive ()
+  {
+    return m_active;
+  }
+
+  /* Public methods */
+
+  public <T> void add (Request<T> request, RequestScheduler.RequestClass requestClass)
+  {
+    if (!m_active)
+    {
+      return;
+    }
+    ParityApplication.getInstance().addToRequestQueue(request, m_tag, requestClass);
+  }
+
+  /**
+   * Deactivates the scope and cancels its queued and in-flight requests.
+   * Coalesced requests shared with other scopes keep running for them.
+   */
+  public void close ()
+  {
+    m_active = false;
+    ParityApplication.getInstance().cancelPendingRequests(m_tag);
+  }
+}
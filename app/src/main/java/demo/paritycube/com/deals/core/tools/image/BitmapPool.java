@@ -0,0 +1,202 @@
+package demo.paritycube.com.deals.core.tools.image;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pool of mutable bitmaps kept for reuse by the image decoder (through
+ * {@code inBitmap}) and by the thumbnail handler drawing into a new bitmap. Since
+ * KitKat, which is our minimum API level, a bitmap can be reused for any
+ * size and config that fits its allocation, so bitmaps are bucketed by the
+ * power of two their allocation covers, and a request is served from the
+ * bucket of the next power of two above its byte count.
+ *
+ * Only bitmaps nobody else references may be put back: anything that went
+ * to the memory cache or an ImageView must not come back here.
+ */
+public class BitmapPool
+{
+  /* Properties */
+
+  public static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+
+  private static BitmapPool sm_instance;
+
+  private final long m_maxBytes;
+  private final Map<Integer, ArrayDeque<Bitmap>> m_buckets = new HashMap<>();
+  private final ArrayDeque<Bitmap> m_order = new ArrayDeque<>();
+  private long m_bytes;
+  private int m_allocationCount;
+  private int m_reuseCount;
+
+  /* Creational */
+
+  public static synchronized BitmapPool getInstance ()
+  {
+    if (sm_instance == null)
+    {
+      sm_instance = new BitmapPool(DEFAULT_MAX_BYTES);
+    }
+    return sm_instance;
+  }
+
+  public BitmapPool (long maxBytes)
+  {
+    m_maxBytes = maxBytes;
+  }
+
+  /* Property methods */
+
+  /**
+   * Returns how many bitmaps had to be allocated because the pool had none
+   * fitting, including decodes that ran without a bitmap to reuse.
+   */
+  public synchronized int getAllocationCount ()
+  {
+    return m_allocationCount;
+  }
+
+  /**
+   * Returns how many requests were served from the pool.
+   */
+  public synchronized int getReuseCount ()
+  {
+    return m_reuseCount;
+  }
+
+  /* Public methods */
+
+  /**
+   * Returns a cleared bitmap of the size and config, reused from the pool
+   * when one fits.
+   */
+  public synchronized Bitmap get (int width, int height, Bitmap.Config config)
+  {
+    Bitmap bitmap = take(byteCount(width, height, config));
+    if (bitmap == null)
+    {
+      m_allocationCount++;
+      return Bitmap.createBitmap(width, height, config);
+    }
+    m_reuseCount++;
+    bitmap.reconfigure(width, height, config);
+    bitmap.eraseColor(Color.TRANSPARENT);
+    return bitmap;
+  }
+
+  /**
+   * Returns a bitmap large enough to decode an image of the size and config
+   * into, or null when the pool has none and the decoder has to allocate.
+   */
+  public synchronized Bitmap getForDecode (int width, int height, Bitmap.Config config)
+  {
+    Bitmap bitmap = take(byteCount(width, height, config));
+    if (bitmap == null)
+    {
+      m_allocationCount++;
+    }
+    else
+    {
+      m_reuseCount++;
+    }
+    return bitmap;
+  }
+
+  /**
+   * Hands a bitmap back for reuse. Bitmaps that cannot be reused, or would
+   * take more than half of the pool, are recycled instead; the oldest ones
+   * are recycled when the pool grows over its budget.
+   */
+  public synchronized void put (Bitmap bitmap)
+  {
+    if (bitmap == null || bitmap.isRecycled())
+    {
+      return;
+    }
+    int size = bitmap.getAllocationByteCount();
+    if (!bitmap.isMutable() || size > m_maxBytes / 2)
+    {
+      bitmap.recycle();
+      return;
+    }
+
+    int bucket = 31 - Integer.numberOfLeadingZeros(size);
+    ArrayDeque<Bitmap> bitmaps = m_buckets.get(bucket);
+    if (bitmaps == null)
+    {
+      bitmaps = new ArrayDeque<>();
+      m_buckets.put(bucket, bitmaps);
+    }
+    bitmaps.push(bitmap);
+    m_order.addLast(bitmap);
+    m_bytes += size;
+
+    while (m_bytes > m_maxBytes)
+    {
+      Bitmap eldest = m_order.removeFirst();
+      m_buckets.get(31 - Integer.numberOfLeadingZeros(eldest.getAllocationByteCount())).remove(eldest);
+      m_bytes -= eldest.getAllocationByteCount();
+      eldest.recycle();
+    }
+  }
+
+  /**
+   * Recycles every pooled bitmap.
+   */
+  public synchronized void clear ()
+  {
+    for (Bitmap bitmap : m_order)
+    {
+      bitmap.recycle();
+    }
+    m_order.clear();
+    m_buckets.clear();
+    m_bytes = 0;
+  }
+
+  /* Internal methods */
+
+  /**
+   * Takes a bitmap from the bucket covering the byte count, or from the next
+   * one up, so a small request never pins a much larger allocation.
+   */
+  private Bitmap take (int byteCount)
+  {
+    int bucket = 32 - Integer.numberOfLeadingZeros(Math.max(byteCount, 1) - 1);
+    for (int candidate = bucket; candidate <= bucket + 1; candidate++)
+    {
+      ArrayDeque<Bitmap> bitmaps = m_buckets.get(candidate);
+      Bitmap bitmap = bitmaps != null ? bitmaps.poll() : null;
+      if (bitmap != null)
+      {
+        m_order.remove(bitmap);
+        m_bytes -= bitmap.getAllocationByteCount();
+        return bitmap;
+      }
+    }
+    return null;
+  }
+
+  private static int byteCount (int width, int height, Bitmap.Config config)
+  {
+    int bytesPerPixel;
+    switch (config)
+    {
+      case ALPHA_8:
+        bytesPerPixel = 1;
+        break;
+      case RGB_565:
+      case ARGB_4444:
+        bytesPerPixel = 2;
+        break;
+      default:
+        bytesPerPixel = 4;
+        break;
+    }
+    return width * height * bytesPerPixel;
+  }
+}
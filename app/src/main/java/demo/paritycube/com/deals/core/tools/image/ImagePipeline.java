@@ -0,0 +1,95 @@
+package demo.paritycube.com.deals.core.tools.image;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+
+import com.squareup.picasso.LruCache;
+import com.squareup.picasso.Picasso;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import demo.paritycube.com.deals.core.tools.http.HttpStackFactory;
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+
+/**
+ * Builds the application wide {@link Picasso} instance. Decoded bitmaps are
+ * kept in a memory LRU sized from the heap the device grants the application
+ * and from the byte size of a deal row thumbnail, so a whole feed fits once
+ * the heap allows it. Downloads go through the shared {@link OkHttpClient}
+ * and are kept in a bounded disk cache.
+ *
+ * Picasso keys its memory cache by URI and target size. Row thumbnails
+ * are loaded through {@link ThumbnailRequestHandler}, whose URIs carry the
+ * size and shape, rounding included; other loads should state their size
+ * with {@code resize()}.
+ */
+public class ImagePipeline
+{
+  /* Properties */
+
+  public static final int THUMBNAIL_SIZE_DP = 55;
+  public static final long DISK_CACHE_BYTES = 32L * 1024 * 1024;
+
+  private static final String DISK_CACHE_DIRECTORY = "image-cache";
+  private static final int CACHED_ROWS = 100;
+  private static final long DEFAULT_MAX_AGE_SECONDS = TimeUnit.DAYS.toSeconds(7);
+
+  /* Creational */
+
+  public static Picasso create (Context context)
+  {
+    OkHttpClient client = HttpStackFactory.getOkHttpClient().newBuilder()
+        .cache(new Cache(new File(context.getCacheDir(), DISK_CACHE_DIRECTORY), DISK_CACHE_BYTES))
+        .addNetworkInterceptor(chain -> {
+          /* Image URLs carry a version query, so a response the CDN sent
+           * without caching headers can still be kept for a while. */
+          okhttp3.Response response = chain.proceed(chain.request());
+          if (response.header("Cache-Control") != null || response.header("Expires") != null)
+          {
+            return response;
+          }
+          return response.newBuilder()
+              .header("Cache-Control", "max-age=" + DEFAULT_MAX_AGE_SECONDS)
+              .build();
+        })
+        .build();
+
+    OkHttpImageDownloader downloader = new OkHttpImageDownloader(client);
+    return new Picasso.Builder(context)
+        .downloader(downloader)
+        .addRequestHandler(new ThumbnailRequestHandler(downloader, BitmapPool.getInstance()))
+        .memoryCache(new LruCache(calculateMemoryCacheBytes(context)))
+        .build();
+  }
+
+  /* Public methods */
+
+  /**
+   * Returns the edge, in pixels, of the thumbnail shown on a deal row.
+   */
+  public static int getThumbnailSize (Context context)
+  {
+    return (int) (context.getResources().getDisplayMetrics().density * THUMBNAIL_SIZE_DP);
+  }
+
+  /**
+   * Returns enough bytes for {@link #CACHED_ROWS} row thumbnails, but no
+   * less than an eighth and no more than a quarter of the heap.
+   */
+  static int calculateMemoryCacheBytes (Context context)
+  {
+    ActivityManager activityManager =
+        (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+    boolean largeHeap = (context.getApplicationInfo().flags & ApplicationInfo.FLAG_LARGE_HEAP) != 0;
+    int memoryClass = largeHeap ? activityManager.getLargeMemoryClass() : activityManager.getMemoryClass();
+    long heapBytes = memoryClass * 1024L * 1024L;
+
+    int size = getThumbnailSize(context);
+    long rowBytes = size * size * 4L;
+    long bytes = Math.max(heapBytes / 8, Math.min(rowBytes * CACHED_ROWS, heapBytes / 4));
+    return (int) bytes;
+  }
+}
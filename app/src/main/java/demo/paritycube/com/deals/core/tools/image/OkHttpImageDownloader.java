@@ -0,0 +1,69 @@
+package demo.paritycube.com.deals.core.tools.image;
+
+import android.net.Uri;
+
+import com.squareup.picasso.Downloader;
+import com.squareup.picasso.NetworkPolicy;
+
+import java.io.IOException;
+
+import okhttp3.CacheControl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+
+/**
+ * Picasso {@link Downloader} fetching images through an {@link OkHttpClient},
+ * so image downloads share the connection pool of the API requests and are
+ * kept in the client's bounded disk cache. Picasso's network policy is mapped
+ * onto the cache control of each request.
+ */
+public class OkHttpImageDownloader implements Downloader {
+    private final OkHttpClient m_client;
+
+    public OkHttpImageDownloader(OkHttpClient client) {
+        m_client = client;
+    }
+
+    @Override
+    public Response load(Uri uri, int networkPolicy) throws IOException {
+        okhttp3.Response response = execute(uri, networkPolicy);
+        ResponseBody body = response.body();
+        return new Response(body.byteStream(), response.cacheResponse() != null, body.contentLength());
+    }
+
+    /**
+     * Fetches the image, honouring Picasso's network policy. The body of the
+     * returned response is open and must be closed by the caller.
+     */
+    okhttp3.Response execute(Uri uri, int networkPolicy) throws IOException {
+        Request.Builder builder = new Request.Builder().url(uri.toString());
+        if (networkPolicy != 0) {
+            if (NetworkPolicy.isOfflineOnly(networkPolicy)) {
+                builder.cacheControl(CacheControl.FORCE_CACHE);
+            } else {
+                CacheControl.Builder cacheControl = new CacheControl.Builder();
+                if (!NetworkPolicy.shouldReadFromDiskCache(networkPolicy)) {
+                    cacheControl.noCache();
+                }
+                if (!NetworkPolicy.shouldWriteToDiskCache(networkPolicy)) {
+                    cacheControl.noStore();
+                }
+                builder.cacheControl(cacheControl.build());
+            }
+        }
+
+        okhttp3.Response response = m_client.newCall(builder.build()).execute();
+        if (!response.isSuccessful()) {
+            response.body().close();
+            throw new ResponseException(response.code() + " " + response.message(), networkPolicy,
+                    response.code());
+        }
+        return response;
+    }
+
+    @Override
+    public void shutdown() {
+        /* The client, and its cache, live as long as the application. */
+    }
+}
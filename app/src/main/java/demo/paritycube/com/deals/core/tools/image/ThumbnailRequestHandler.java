@@ -0,0 +1,183 @@
+package demo.paritycube.com.deals.core.tools.image;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.Request;
+import com.squareup.picasso.RequestHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import demo.paritycube.com.deals.util.RoundedCorners;
+import okhttp3.ResponseBody;
+
+/**
+ * Picasso {@link RequestHandler} producing rounded thumbnails of network
+ * images in a single pass, for the URIs built by {@link #createUri}. The
+ * image is decoded with the smallest sample size that still covers the
+ * thumbnail, into a bitmap reused from the {@link BitmapPool}, and drawn
+ * scaled and rounded into a pooled output; the decoded bitmap then goes back
+ * to the pool. Going through Picasso's own resize and transformation steps
+ * instead would allocate two more bitmaps per image and recycle the rest.
+ *
+ * The URI carries the image URL, the thumbnail edge and the rounding, so the
+ * memory cache keeps one entry per image, size and shape.
+ */
+public class ThumbnailRequestHandler extends RequestHandler
+{
+  /* Properties */
+
+  public static final String SCHEME = "thumbnail";
+
+  private static final String PARAM_SOURCE = "src";
+  private static final String PARAM_SIZE = "size";
+  private static final String PARAM_RADIUS = "radius";
+  private static final String PARAM_MARGIN = "margin";
+  private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+  /* Each of Picasso's worker threads reads the encoded image into its own buffer. */
+  private static final ThreadLocal<EncodedBuffer> sm_buffer = new ThreadLocal<EncodedBuffer>()
+  {
+    @Override
+    protected EncodedBuffer initialValue ()
+    {
+      return new EncodedBuffer();
+    }
+  };
+
+  private final OkHttpImageDownloader m_downloader;
+  private final BitmapPool m_pool;
+
+  /* Creational */
+
+  public ThumbnailRequestHandler (OkHttpImageDownloader downloader, BitmapPool pool)
+  {
+    m_downloader = downloader;
+    m_pool = pool;
+  }
+
+  /**
+   * Returns the URI loading the image at the URL as a thumbnail fitting a
+   * square of {@code size} pixels, never scaled up, with the given corner
+   * radius and margin.
+   */
+  public static Uri createUri (String url, int size, int radius, int margin)
+  {
+    return new Uri.Builder()
+        .scheme(SCHEME)
+        .authority("image")
+        .appendQueryParameter(PARAM_SOURCE, url)
+        .appendQueryParameter(PARAM_SIZE, String.valueOf(size))
+        .appendQueryParameter(PARAM_RADIUS, String.valueOf(radius))
+        .appendQueryParameter(PARAM_MARGIN, String.valueOf(margin))
+        .build();
+  }
+
+  /* RequestHandler methods */
+
+  @Override
+  public boolean canHandleRequest (Request data)
+  {
+    return data.uri != null && SCHEME.equals(data.uri.getScheme());
+  }
+
+  @Override
+  public Result load (Request request, int networkPolicy) throws IOException
+  {
+    Uri uri = request.uri;
+    String source = uri.getQueryParameter(PARAM_SOURCE);
+    int size = Integer.parseInt(uri.getQueryParameter(PARAM_SIZE));
+    int radius = Integer.parseInt(uri.getQueryParameter(PARAM_RADIUS));
+    int margin = Integer.parseInt(uri.getQueryParameter(PARAM_MARGIN));
+
+    okhttp3.Response response = m_downloader.execute(Uri.parse(source), networkPolicy);
+    Picasso.LoadedFrom loadedFrom = response.cacheResponse() != null
+        ? Picasso.LoadedFrom.DISK
+        : Picasso.LoadedFrom.NETWORK;
+    EncodedBuffer buffer = sm_buffer.get();
+    ResponseBody body = response.body();
+    try
+    {
+      buffer.readFrom(body.byteStream());
+    }
+    finally
+    {
+      body.close();
+    }
+
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeByteArray(buffer.bytes, 0, buffer.length, options);
+    int width = options.outWidth;
+    int height = options.outHeight;
+    if (width <= 0 || height <= 0)
+    {
+      throw new IOException("Cannot decode " + source);
+    }
+
+    float scale = Math.min(1f, Math.min(size / (float) width, size / (float) height));
+    int targetWidth = Math.max(1, Math.round(width * scale));
+    int targetHeight = Math.max(1, Math.round(height * scale));
+    int sampleSize = 1;
+    while (width / (sampleSize * 2) >= targetWidth && height / (sampleSize * 2) >= targetHeight)
+    {
+      sampleSize *= 2;
+    }
+
+    options.inJustDecodeBounds = false;
+    options.inSampleSize = sampleSize;
+    options.inMutable = true;
+    options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+    options.inBitmap = m_pool.getForDecode((width + sampleSize - 1) / sampleSize,
+        (height + sampleSize - 1) / sampleSize, Bitmap.Config.ARGB_8888);
+    Bitmap decoded;
+    try
+    {
+      decoded = BitmapFactory.decodeByteArray(buffer.bytes, 0, buffer.length, options);
+    }
+    catch (IllegalArgumentException ex)
+    {
+      /* The decoder could not reuse the bitmap, decode into a new one. */
+      m_pool.put(options.inBitmap);
+      options.inBitmap = null;
+      decoded = BitmapFactory.decodeByteArray(buffer.bytes, 0, buffer.length, options);
+    }
+    if (decoded == null)
+    {
+      m_pool.put(options.inBitmap);
+      throw new IOException("Cannot decode " + source);
+    }
+
+    Bitmap output = m_pool.get(targetWidth, targetHeight, Bitmap.Config.ARGB_8888);
+    RoundedCorners.draw(decoded, output, radius, margin);
+    m_pool.put(decoded);
+    return new Result(output, loadedFrom);
+  }
+
+  /* EncodedBuffer definition */
+
+  private static class EncodedBuffer
+  {
+    byte[] bytes = new byte[INITIAL_BUFFER_SIZE];
+    int length;
+
+    void readFrom (InputStream input) throws IOException
+    {
+      length = 0;
+      int count;
+      while ((count = input.read(bytes, length, bytes.length - length)) != -1)
+      {
+        length += count;
+        if (length == bytes.length)
+        {
+          byte[] grown = new byte[bytes.length * 2];
+          System.arraycopy(bytes, 0, grown, 0, length);
+          bytes = grown;
+        }
+      }
+    }
+  }
+}
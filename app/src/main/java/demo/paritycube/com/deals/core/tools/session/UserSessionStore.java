@@ -0,0 +1,204 @@
+package demo.paritycube.com.deals.core.tools.session;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+import demo.paritycube.com.deals.core.tools.executor.AppExecutors;
+import demo.paritycube.com.deals.db.DBAdapter;
+import demo.paritycube.com.deals.pojo.UserInfo;
+
+/**
+ * Keeps the signed-in user in memory. The stored account is read once, by
+ * {@link #load()} during startup; {@link #getUser()} only ever reads memory
+ * and returns null until that load is over, screens showing the user listen
+ * for it. Changes are applied to memory right away and written through to
+ * the database on the disk executor, in the order they were made, and
+ * listeners hear about them on the main thread.
+ */
+public class UserSessionStore
+{
+  /* Properties */
+
+  private final AccountStorage m_storage;
+  private final Executor m_diskIO;
+  private final Executor m_mainThread;
+  private final List<Listener> m_listeners = new CopyOnWriteArrayList<>();
+  private volatile UserInfo m_user;
+  private volatile boolean m_loaded;
+
+  /* Listener definition */
+
+  /**
+   * Notified on the main thread when the user signs in, out, or is loaded.
+   */
+  public interface Listener
+  {
+    void onUserChanged (UserInfo user);
+  }
+
+  /* AccountStorage definition */
+
+  /**
+   * Reads and writes the stored account, blocking.
+   */
+  interface AccountStorage
+  {
+    UserInfo read ();
+
+    void write (UserInfo user);
+  }
+
+  /* Creational */
+
+  public UserSessionStore (DBAdapter database)
+  {
+    this(new DatabaseStorage(database), AppExecutors.diskIO(), AppExecutors.mainThread());
+  }
+
+  UserSessionStore (AccountStorage storage, Executor diskIO, Executor mainThread)
+  {
+    m_storage = storage;
+    m_diskIO = diskIO;
+    m_mainThread = mainThread;
+  }
+
+  /* Property methods */
+
+  public boolean isLoaded ()
+  {
+    return m_loaded;
+  }
+
+  /**
+   * Returns the signed-in user, or null when nobody is signed in or the
+   * startup load is not over yet, see {@link #isLoaded()}. Never touches the
+   * database.
+   */
+  public UserInfo getUser ()
+  {
+    return m_user;
+  }
+
+  /**
+   * Signs the user in, or out for null, and persists the change in the
+   * background.
+   */
+  public void setUser (final UserInfo user)
+  {
+    synchronized (this)
+    {
+      m_user = user;
+      m_loaded = true;
+      /* Queued under the lock, so writes reach the storage in the order the
+       * changes were made. */
+      m_diskIO.execute(() -> m_storage.write(user));
+      notifyListeners(user);
+    }
+  }
+
+  public void clear ()
+  {
+    setUser(null);
+  }
+
+  /* Public methods */
+
+  /**
+   * Reads the stored account if it was not read yet, blocking; meant for a
+   * background thread, like the startup stage. The read runs without the
+   * lock held; a user set while it was running wins over what was read.
+   */
+  public UserInfo load ()
+  {
+    if (m_loaded)
+    {
+      return m_user;
+    }
+    UserInfo user = m_storage.read();
+    synchronized (this)
+    {
+      if (m_loaded)
+      {
+        return m_user;
+      }
+      m_user = user;
+      m_loaded = true;
+      notifyListeners(user);
+    }
+    return user;
+  }
+
+  public void addListener (Listener listener)
+  {
+    m_listeners.add(listener);
+  }
+
+  public void removeListener (Listener listener)
+  {
+    m_listeners.remove(listener);
+  }
+
+  /* Internal methods */
+
+  private void notifyListeners (final UserInfo user)
+  {
+    m_mainThread.execute(() -> {
+      for (Listener listener : m_listeners)
+      {
+        listener.onUserChanged(user);
+      }
+    });
+  }
+
+  /* DatabaseStorage definition */
+
+  private static class DatabaseStorage implements AccountStorage
+  {
+    private final DBAdapter m_database;
+
+    DatabaseStorage (DBAdapter database)
+    {
+      m_database = database;
+    }
+
+    @Override
+    public UserInfo read ()
+    {
+      m_database.open();
+      try
+      {
+        return m_database.getUserAccount();
+      }
+      finally
+      {
+        m_database.close();
+      }
+    }
+
+    @Override
+    public void write (UserInfo user)
+    {
+      m_database.open();
+      try
+      {
+        if (user == null)
+        {
+          m_database.removeUserAccount();
+        }
+        else
+        {
+          m_database.replaceUserDetails(user.getId(), user.getName(), user.getEmail(), user.getLink());
+        }
+      }
+      catch (Exception ex)
+      {
+        ex.printStackTrace();
+      }
+      finally
+      {
+        m_database.close();
+      }
+    }
+  }
+}
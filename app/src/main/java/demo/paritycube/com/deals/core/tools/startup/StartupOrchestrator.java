@@ -0,0 +1,317 @@
+package demo.paritycube.com.deals.core.tools.startup;
+
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import demo.paritycube.com.deals.core.tools.executor.AppExecutors;
+import demo.paritycube.com.deals.util.Logger;
+
+/**
+ * Runs the warm-up work of the application as a dependency graph on the IO
+ * pool. A stage starts as soon as the stages it depends on have finished, so
+ * independent stages run in parallel. Screens waiting on the warm-up, like
+ * the splash, register through {@link #whenCriticalReady(Runnable)} and are
+ * released once the stages marked critical are done while the others keep
+ * running behind them, or once their timeout is over if a critical stage
+ * hangs. A screen going away before that unregisters through
+ * {@link #removeCriticalReadyCallback(Runnable)}.
+ *
+ * A stage that fails, even with an error, is logged and counts as finished,
+ * its dependents still run. Every stage is timed relative to
+ * {@link #start()}, see {@link #getTimings()}.
+ */
+public class StartupOrchestrator
+{
+  /* Properties */
+
+  /**
+   * How long {@link #whenCriticalReady(Runnable)} waits for the critical
+   * stages before running its callback anyway.
+   */
+  public static final long CRITICAL_TIMEOUT_MS = 3000;
+
+  private final Map<String, Stage> m_stages = new LinkedHashMap<>();
+  /* Callbacks waiting for the critical stages, with their timeouts. */
+  private final Map<Runnable, Runnable> m_criticalCallbacks = new LinkedHashMap<>();
+  private long m_startMs;
+  private long m_criticalReadyMs = -1;
+  private int m_pendingStages;
+  private int m_pendingCriticalStages;
+  private boolean m_started;
+
+  /* Initializer definition */
+
+  /**
+   * The work of one stage, run on a background thread.
+   */
+  public interface Initializer
+  {
+    void run () throws Exception;
+  }
+
+  /* Timing definition */
+
+  /**
+   * Timing of a stage, in milliseconds since the orchestrator started. A
+   * stage that did not start yet has a negative start.
+   */
+  public static class Timing
+  {
+    public final String name;
+    public final boolean critical;
+    public final long startMs;
+    public final long durationMs;
+    public final boolean failed;
+
+    Timing (String name, boolean critical, long startMs, long durationMs, boolean failed)
+    {
+      this.name = name;
+      this.critical = critical;
+      this.startMs = startMs;
+      this.durationMs = durationMs;
+      this.failed = failed;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return name + (critical ? "*" : "") + " +" + startMs + "ms " + durationMs + "ms"
+          + (failed ? " FAILED" : "");
+    }
+  }
+
+  /* Property methods */
+
+  public synchronized boolean isCriticalReady ()
+  {
+    return m_started && m_pendingCriticalStages == 0;
+  }
+
+  /**
+   * Returns the time from the start until the last critical stage finished,
+   * or -1 while critical stages are still running.
+   */
+  public synchronized long getCriticalReadyMs ()
+  {
+    return m_criticalReadyMs;
+  }
+
+  public synchronized List<Timing> getTimings ()
+  {
+    List<Timing> timings = new ArrayList<>(m_stages.size());
+    for (Stage stage : m_stages.values())
+    {
+      timings.add(new Timing(stage.name, stage.critical, stage.startMs, stage.durationMs,
+          stage.failed));
+    }
+    return Collections.unmodifiableList(timings);
+  }
+
+  /* Public methods */
+
+  /**
+   * Adds a stage running after the named stages, which have to be added
+   * first; this also keeps the graph free of cycles.
+   */
+  public synchronized StartupOrchestrator add (String name, boolean critical, Initializer initializer,
+                                               String... dependencies)
+  {
+    if (m_started)
+    {
+      throw new IllegalStateException("Stages cannot be added once started");
+    }
+    if (m_stages.containsKey(name))
+    {
+      throw new IllegalArgumentException("Duplicate stage " + name);
+    }
+
+    Stage stage = new Stage(name, critical, initializer);
+    for (String dependency : dependencies)
+    {
+      Stage parent = m_stages.get(dependency);
+      if (parent == null)
+      {
+        throw new IllegalArgumentException("Unknown stage " + dependency + " for " + name);
+      }
+      parent.dependents.add(stage);
+      stage.pendingDependencies++;
+    }
+    m_stages.put(name, stage);
+    return this;
+  }
+
+  /**
+   * Starts every stage without dependencies.
+   */
+  public synchronized void start ()
+  {
+    if (m_started)
+    {
+      return;
+    }
+    m_started = true;
+    m_startMs = SystemClock.elapsedRealtime();
+    m_pendingStages = m_stages.size();
+    for (Stage stage : m_stages.values())
+    {
+      if (stage.critical)
+      {
+        m_pendingCriticalStages++;
+      }
+    }
+    if (m_pendingCriticalStages == 0)
+    {
+      onCriticalReady();
+    }
+    for (Stage stage : m_stages.values())
+    {
+      if (stage.pendingDependencies == 0)
+      {
+        schedule(stage);
+      }
+    }
+  }
+
+  /**
+   * Runs the callback on the main thread once every critical stage has
+   * finished, right away if they already have, and at the latest after
+   * {@link #CRITICAL_TIMEOUT_MS}.
+   */
+  public void whenCriticalReady (Runnable callback)
+  {
+    whenCriticalReady(callback, CRITICAL_TIMEOUT_MS);
+  }
+
+  /**
+   * Same as {@link #whenCriticalReady(Runnable)}, running the callback after
+   * the timeout if the critical stages are still not done. The callback runs
+   * once either way.
+   */
+  public synchronized void whenCriticalReady (final Runnable callback, long timeoutMs)
+  {
+    if (isCriticalReady())
+    {
+      AppExecutors.mainThread().execute(callback);
+      return;
+    }
+    Runnable timeout = () -> onCriticalTimeout(callback);
+    m_criticalCallbacks.put(callback, timeout);
+    AppExecutors.mainThreadDelayed(timeout, timeoutMs);
+  }
+
+  /**
+   * Drops a callback registered through {@link #whenCriticalReady(Runnable)}
+   * that has not been released yet, e.g. when its screen is destroyed.
+   */
+  public synchronized void removeCriticalReadyCallback (Runnable callback)
+  {
+    Runnable timeout = m_criticalCallbacks.remove(callback);
+    if (timeout != null)
+    {
+      AppExecutors.cancelMainThreadDelayed(timeout);
+    }
+  }
+
+  /* Internal methods */
+
+  private void schedule (final Stage stage)
+  {
+    AppExecutors.io().execute(() -> run(stage));
+  }
+
+  private void run (Stage stage)
+  {
+    long startMs = SystemClock.elapsedRealtime();
+    boolean failed = true;
+    try
+    {
+      stage.initializer.run();
+      failed = false;
+    }
+    catch (Exception ex)
+    {
+      ex.printStackTrace();
+    }
+    finally
+    {
+      /* Also on an error, which still reaches the thread afterwards, so the
+       * stages depending on this one and the critical callbacks are not
+       * left waiting forever. */
+      onStageFinished(stage, startMs, SystemClock.elapsedRealtime() - startMs, failed);
+    }
+  }
+
+  private synchronized void onStageFinished (Stage stage, long startMs, long durationMs, boolean failed)
+  {
+    stage.startMs = startMs - m_startMs;
+    stage.durationMs = durationMs;
+    stage.failed = failed;
+
+    for (Stage dependent : stage.dependents)
+    {
+      if (--dependent.pendingDependencies == 0)
+      {
+        schedule(dependent);
+      }
+    }
+    if (stage.critical && --m_pendingCriticalStages == 0)
+    {
+      onCriticalReady();
+    }
+    if (--m_pendingStages == 0)
+    {
+      Logger.info("Startup finished in " + (SystemClock.elapsedRealtime() - m_startMs)
+          + "ms, critical stages in " + m_criticalReadyMs + "ms: " + getTimings());
+    }
+  }
+
+  private void onCriticalReady ()
+  {
+    m_criticalReadyMs = SystemClock.elapsedRealtime() - m_startMs;
+    for (Map.Entry<Runnable, Runnable> callback : m_criticalCallbacks.entrySet())
+    {
+      AppExecutors.cancelMainThreadDelayed(callback.getValue());
+      AppExecutors.mainThread().execute(callback.getKey());
+    }
+    m_criticalCallbacks.clear();
+  }
+
+  private void onCriticalTimeout (Runnable callback)
+  {
+    synchronized (this)
+    {
+      if (m_criticalCallbacks.remove(callback) == null)
+      {
+        return;
+      }
+      Logger.info("Critical stages not done after their timeout: " + getTimings());
+    }
+    callback.run();
+  }
+
+  /* Stage definition */
+
+  private static class Stage
+  {
+    final String name;
+    final boolean critical;
+    final Initializer initializer;
+    final List<Stage> dependents = new ArrayList<>();
+    int pendingDependencies;
+    long startMs = -1;
+    long durationMs;
+    boolean failed;
+
+    Stage (String name, boolean critical, Initializer initializer)
+    {
+      this.name = name;
+      this.critical = critical;
+      this.initializer = initializer;
+    }
+  }
+}
@@ -3,13 +3,22 @@ package demo.paritycube.com.deals.db;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import demo.paritycube.com.deals.ParityApplication;
+import demo.paritycube.com.deals.core.tools.executor.AppExecutors;
 import demo.paritycube.com.deals.pojo.Datum;
+import demo.paritycube.com.deals.pojo.Merchant;
+import demo.paritycube.com.deals.pojo.User;
+import demo.paritycube.com.deals.pojo.UserInfo;
 
 /**
  * Created by Sandeep Devhare @APAR on 6/23/2017.
@@ -19,50 +28,247 @@ public class DBAdapter {
     private static final String DATABASE_NAME = "Parity_DB";
 
     private static final String TAG = "DBAdapter";
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 3;
+    private static final String SQL_UPSERT_DEAL = "INSERT OR REPLACE INTO " + DbConstants.Tables.DEALS + " ("
+            + DbConstants.DealCollumn._ID + ", "
+            + DbConstants.DealCollumn.TITLE + ", "
+            + DbConstants.DealCollumn.DESCRIPTION + ", "
+            + DbConstants.DealCollumn.IMAGEURL + ", "
+            + DbConstants.DealCollumn.FPD_FLAG + ", "
+            + DbConstants.DealCollumn.OFF_PERCENT + ", "
+            + DbConstants.DealCollumn.CURRENT_PRICE + ", "
+            + DbConstants.DealCollumn.ORIGINAL_PRICE + ", "
+            + DbConstants.DealCollumn.COMMENTS_COUNT + ", "
+            + DbConstants.DealCollumn.ALL_POSTS_COUNT + ", "
+            + DbConstants.DealCollumn.CREATED_AT + ", "
+            + DbConstants.DealCollumn.SCORE + ", "
+            + DbConstants.DealCollumn.VOTE_VALUE + ", "
+            + DbConstants.DealCollumn.STATE + ", "
+            + DbConstants.DealCollumn.SHARE_URL + ", "
+            + DbConstants.DealCollumn.DEAL_URL + ", "
+            + DbConstants.DealCollumn.VIEW_COUNT + ", "
+            + DbConstants.DealCollumn.VOTE_COUNT + ", "
+            + DbConstants.DealCollumn.FPD_SUGGESTED + ", "
+            + DbConstants.DealCollumn.FRONT_PAGE_SUGGESTIONS_COUNT + ", "
+            + DbConstants.DealCollumn.MERCHANT_ID + ", "
+            + DbConstants.DealCollumn.USER_ID
+            + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_UPSERT_MERCHANT = "INSERT OR REPLACE INTO " + DbConstants.Tables.MERCHANTS + " ("
+            + DbConstants.MerchantCollumn._ID + ", "
+            + DbConstants.MerchantCollumn.NAME + ", "
+            + DbConstants.MerchantCollumn.IMAGE + ", "
+            + DbConstants.MerchantCollumn.PERMALINK + ", "
+            + DbConstants.MerchantCollumn.RECOMMENDATION + ", "
+            + DbConstants.MerchantCollumn.RECOMMENDATION_FLAG + ", "
+            + DbConstants.MerchantCollumn.AVERAGE_RATING
+            + ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_UPSERT_DEAL_USER = "INSERT OR REPLACE INTO " + DbConstants.Tables.DEAL_USERS + " ("
+            + DbConstants.DealUserCollumn._ID + ", "
+            + DbConstants.DealUserCollumn.NAME + ", "
+            + DbConstants.DealUserCollumn.IMAGE + ", "
+            + DbConstants.DealUserCollumn.RANK + ", "
+            + DbConstants.DealUserCollumn.CURRENT_DIMES + ", "
+            + DbConstants.DealUserCollumn.KARMA + ", "
+            + DbConstants.DealUserCollumn.FPD_COUNT
+            + ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_UPSERT_FEED_ENTRY = "INSERT OR REPLACE INTO " + DbConstants.Tables.FEED_ENTRIES + " ("
+            + DbConstants.FeedEntryCollumn.FEED_TYPE + ", "
+            + DbConstants.FeedEntryCollumn.DEAL_ID + ", "
+            + DbConstants.FeedEntryCollumn.POSITION + ", "
+            + DbConstants.FeedEntryCollumn.FETCHED_AT
+            + ") VALUES (?, ?, ?, ?)";
+    private static final String[] USER_ACCOUNT_COLUMNS = new String[]{
+            DbConstants.UserAccountCollumn._ID,
+            DbConstants.UserAccountCollumn.USERNAME,
+            DbConstants.UserAccountCollumn.USEREMAIL,
+            DbConstants.UserAccountCollumn.PROFILELINK};
+    private static final String SQL_SELECT_FEED_DEALS = "SELECT "
+            + "d." + DbConstants.DealCollumn._ID + ", "
+            + "d." + DbConstants.DealCollumn.TITLE + ", "
+            + "d." + DbConstants.DealCollumn.DESCRIPTION + ", "
+            + "d." + DbConstants.DealCollumn.IMAGEURL + ", "
+            + "d." + DbConstants.DealCollumn.FPD_FLAG + ", "
+            + "d." + DbConstants.DealCollumn.OFF_PERCENT + ", "
+            + "d." + DbConstants.DealCollumn.CURRENT_PRICE + ", "
+            + "d." + DbConstants.DealCollumn.ORIGINAL_PRICE + ", "
+            + "d." + DbConstants.DealCollumn.COMMENTS_COUNT + ", "
+            + "d." + DbConstants.DealCollumn.ALL_POSTS_COUNT + ", "
+            + "d." + DbConstants.DealCollumn.CREATED_AT + ", "
+            + "d." + DbConstants.DealCollumn.SCORE + ", "
+            + "d." + DbConstants.DealCollumn.VOTE_VALUE + ", "
+            + "d." + DbConstants.DealCollumn.STATE + ", "
+            + "d." + DbConstants.DealCollumn.SHARE_URL + ", "
+            + "d." + DbConstants.DealCollumn.DEAL_URL + ", "
+            + "d." + DbConstants.DealCollumn.VIEW_COUNT + ", "
+            + "d." + DbConstants.DealCollumn.VOTE_COUNT + ", "
+            + "d." + DbConstants.DealCollumn.FPD_SUGGESTED + ", "
+            + "d." + DbConstants.DealCollumn.FRONT_PAGE_SUGGESTIONS_COUNT + ", "
+            + "m." + DbConstants.MerchantCollumn._ID + ", "
+            + "m." + DbConstants.MerchantCollumn.NAME + ", "
+            + "m." + DbConstants.MerchantCollumn.IMAGE + ", "
+            + "m." + DbConstants.MerchantCollumn.PERMALINK + ", "
+            + "m." + DbConstants.MerchantCollumn.RECOMMENDATION + ", "
+            + "m." + DbConstants.MerchantCollumn.RECOMMENDATION_FLAG + ", "
+            + "m." + DbConstants.MerchantCollumn.AVERAGE_RATING + ", "
+            + "u." + DbConstants.DealUserCollumn._ID + ", "
+            + "u." + DbConstants.DealUserCollumn.NAME + ", "
+            + "u." + DbConstants.DealUserCollumn.IMAGE + ", "
+            + "u." + DbConstants.DealUserCollumn.RANK + ", "
+            + "u." + DbConstants.DealUserCollumn.CURRENT_DIMES + ", "
+            + "u." + DbConstants.DealUserCollumn.KARMA + ", "
+            + "u." + DbConstants.DealUserCollumn.FPD_COUNT
+            + " FROM " + DbConstants.Tables.FEED_ENTRIES + " f"
+            + " INNER JOIN " + DbConstants.Tables.DEALS + " d ON d." + DbConstants.DealCollumn._ID
+            + " = f." + DbConstants.FeedEntryCollumn.DEAL_ID
+            + " LEFT JOIN " + DbConstants.Tables.MERCHANTS + " m ON m." + DbConstants.MerchantCollumn._ID
+            + " = d." + DbConstants.DealCollumn.MERCHANT_ID
+            + " LEFT JOIN " + DbConstants.Tables.DEAL_USERS + " u ON u." + DbConstants.DealUserCollumn._ID
+            + " = d." + DbConstants.DealCollumn.USER_ID
+            + " WHERE f." + DbConstants.FeedEntryCollumn.FEED_TYPE + " = ?"
+            + " ORDER BY f." + DbConstants.FeedEntryCollumn.POSITION;
+
+    private static DBAdapter sInstance;
     private final Context context;
     private DatabaseHelper dBHelper;
     private SQLiteDatabase db;
+    private int openCount;
     ParityApplication appController;
 
-    public DBAdapter(Context ctx) {
-        this.context = ctx;
+    private DBAdapter(Context ctx) {
+        this.context = ctx.getApplicationContext();
         dBHelper = new DatabaseHelper(context);
         appController = (ParityApplication) context.getApplicationContext();
 
     }
 
+    /**
+     * Returns the application scoped adapter. All callers share one
+     * SQLiteOpenHelper and therefore one connection pool, instead of every
+     * screen building and tearing down its own.
+     */
+    public static synchronized DBAdapter getInstance(Context ctx) {
+        if (sInstance == null) {
+            sInstance = new DBAdapter(ctx);
+        }
+        return sInstance;
+    }
 
-
-    private static class DatabaseHelper extends SQLiteOpenHelper {
+    static class DatabaseHelper extends SQLiteOpenHelper {
         DatabaseHelper(Context context) {
-            super(context, DATABASE_NAME, null, DATABASE_VERSION);
+            this(context, DATABASE_NAME);
+        }
+
+        /**
+         * Opens the named database file instead of the app's one, so the
+         * upgrade path can be run against a seeded copy.
+         */
+        DatabaseHelper(Context context, String name) {
+            super(context, name, null, DATABASE_VERSION);
+        }
+
+        @Override
+        public void onConfigure(SQLiteDatabase db) {
+            super.onConfigure(db);
+            /* Write-ahead logging lets readers run while a page is being written. */
+            db.enableWriteAheadLogging();
         }
 
         @Override
         public void onCreate(SQLiteDatabase db) {
             db.execSQL(DbConstants.SQL_CREATE_USER_ACCOUNT);
-            db.execSQL(DbConstants.SQL_CREATE_TOPDEAL);
-            db.execSQL(DbConstants.SQL_CREATE_POPULARDEAL);
+            createDealCache(db);
         }
 
+        /**
+         * Applies every schema step between the installed and the current
+         * version in order, carrying the cached data across.
+         */
         @Override
         public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-            Log.w(TAG, "Upgrading database from version " + oldVersion + " to "
-                    + newVersion + ", which will destroy all old data");
-            db.execSQL("DROP TABLE IF EXISTS " + DbConstants.Tables.USER_ACCOUNT);
+            Log.w(TAG, "Upgrading database from version " + oldVersion + " to " + newVersion);
+            if (oldVersion < 2) {
+                /* Creates the deal cache in its current shape, fetched_at included. */
+                upgradeToVersion2(db);
+            } else if (oldVersion < 3) {
+                db.execSQL(DbConstants.SQL_ADD_FEED_ENTRY_FETCHED_AT);
+            }
+        }
+
+        private static void createDealCache(SQLiteDatabase db) {
+            db.execSQL(DbConstants.SQL_CREATE_DEALS);
+            db.execSQL(DbConstants.SQL_CREATE_MERCHANTS);
+            db.execSQL(DbConstants.SQL_CREATE_DEAL_USERS);
+            db.execSQL(DbConstants.SQL_CREATE_FEED_ENTRIES);
+            db.execSQL(DbConstants.SQL_CREATE_INDEX_DEAL_CREATED_AT);
+            db.execSQL(DbConstants.SQL_CREATE_INDEX_DEAL_SCORE);
+            db.execSQL(DbConstants.SQL_CREATE_INDEX_FEED_POSITION);
+        }
+
+        /**
+         * Version 2 replaces the per feed title / description / image tables
+         * with the normalized deal cache. The rows of the old tables are moved
+         * over, keeping their feed order, before the old tables are dropped.
+         */
+        private static void upgradeToVersion2(SQLiteDatabase db) {
+            createDealCache(db);
+            migrateFeedTable(db, DbConstants.Tables.TOP_DEALS, DbConstants.FeedType.TOP);
+            migrateFeedTable(db, DbConstants.Tables.POPULAR_DEALS, DbConstants.FeedType.POPULAR);
             db.execSQL("DROP TABLE IF EXISTS " + DbConstants.Tables.TOP_DEALS);
             db.execSQL("DROP TABLE IF EXISTS " + DbConstants.Tables.POPULAR_DEALS);
         }
+
+        private static void migrateFeedTable(SQLiteDatabase db, String table, String feedType) {
+            db.execSQL("INSERT OR IGNORE INTO " + DbConstants.Tables.DEALS + " ("
+                    + DbConstants.DealCollumn._ID + ", "
+                    + DbConstants.DealCollumn.TITLE + ", "
+                    + DbConstants.DealCollumn.DESCRIPTION + ", "
+                    + DbConstants.DealCollumn.IMAGEURL + ") SELECT "
+                    + DbConstants.TopDealCollumn._ID + ", "
+                    + DbConstants.TopDealCollumn.TITLE + ", "
+                    + DbConstants.TopDealCollumn.DESCRIPTION + ", "
+                    + DbConstants.TopDealCollumn.IMAGEURL + " FROM " + table
+                    + " WHERE " + DbConstants.TopDealCollumn._ID + " IS NOT NULL");
+            db.execSQL("INSERT OR REPLACE INTO " + DbConstants.Tables.FEED_ENTRIES + " ("
+                    + DbConstants.FeedEntryCollumn.FEED_TYPE + ", "
+                    + DbConstants.FeedEntryCollumn.DEAL_ID + ", "
+                    + DbConstants.FeedEntryCollumn.POSITION + ") SELECT ?, "
+                    + DbConstants.TopDealCollumn._ID + ", rowid FROM " + table
+                    + " WHERE " + DbConstants.TopDealCollumn._ID + " IS NOT NULL",
+                    new Object[]{feedType});
+        }
     }
 
-    public DBAdapter open() throws SQLException {
-        db = dBHelper.getWritableDatabase();
+    /**
+     * Acquires a reference on the shared connection, opening it on first use.
+     * Every call must be balanced by {@link #close()}.
+     */
+    public synchronized DBAdapter open() throws SQLException {
+        if (db == null || !db.isOpen()) {
+            db = dBHelper.getWritableDatabase();
+        }
+        openCount++;
         return this;
     }
 
-    public void close() {
-        dBHelper.close();
+    /**
+     * Releases a reference taken by {@link #open()}. The connection itself
+     * stays open for the next caller, see {@link #releaseIdleConnection()}.
+     */
+    public synchronized void close() {
+        if (openCount > 0) {
+            openCount--;
+        }
+    }
+
+    /**
+     * Closes the underlying connection if nobody holds a reference, e.g. when
+     * the system is low on memory. The next {@link #open()} re-opens it.
+     */
+    public synchronized void releaseIdleConnection() {
+        if (openCount == 0 && db != null) {
+            dBHelper.close();
+            db = null;
+        }
     }
 
     public long insertUserDetails(String userId, String username, String useremail, String userprofileimage) {
@@ -74,21 +280,321 @@ public class DBAdapter {
         return db.insert(DbConstants.Tables.USER_ACCOUNT, null, initialValues);
     }
 
-    public long insertTopDeals(Datum dealData) {
-        ContentValues initialValues = new ContentValues();
-        initialValues.put(DbConstants.TopDealCollumn._ID, dealData.getId());
-        initialValues.put(DbConstants.TopDealCollumn.TITLE, dealData.getTitle());
-        initialValues.put(DbConstants.TopDealCollumn.DESCRIPTION, dealData.getDescription());
-        initialValues.put(DbConstants.TopDealCollumn.IMAGEURL, dealData.getImage());
-        return db.insert(DbConstants.Tables.TOP_DEALS, null, initialValues);
+    /**
+     * Replaces the stored account by the given user in a single transaction,
+     * only one user is signed in at a time.
+     */
+    public void replaceUserDetails(String userId, String username, String useremail, String userprofileimage) {
+        db.beginTransaction();
+        try {
+            db.delete(DbConstants.Tables.USER_ACCOUNT, null, null);
+            insertUserDetails(userId, username, useremail, userprofileimage);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
     }
-    public long insertPopularDeals(Datum dealData) {
-        ContentValues initialValues = new ContentValues();
-        initialValues.put(DbConstants.PopularDealCollumn._ID, dealData.getId());
-        initialValues.put(DbConstants.PopularDealCollumn.TITLE, dealData.getTitle());
-        initialValues.put(DbConstants.PopularDealCollumn.DESCRIPTION, dealData.getDescription());
-        initialValues.put(DbConstants.PopularDealCollumn.IMAGEURL, dealData.getImage());
-        return db.insert(DbConstants.Tables.POPULAR_DEALS, null, initialValues);
+
+    /**
+     * Returns the last stored account, or null when nobody is signed in.
+     */
+    public UserInfo getUserAccount() {
+        Cursor cursor = db.query(DbConstants.Tables.USER_ACCOUNT, USER_ACCOUNT_COLUMNS,
+                null, null, null, null, "rowid DESC", "1");
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            UserInfo userInfo = new UserInfo();
+            userInfo.setId(cursor.getString(0));
+            userInfo.setName(cursor.getString(1));
+            userInfo.setEmail(cursor.getString(2));
+            userInfo.setLink(cursor.getString(3));
+            return userInfo;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Writes a whole page of deals of the given feed type inside a single
+     * transaction, re-using one compiled statement per table for every row.
+     * Merchants and users are stored once in their own tables and referenced
+     * by id. When {@code replaceFeed} is set the previous entries of the feed
+     * and any deal, merchant or user no longer referenced are deleted in the
+     * same transaction, so no stale deals survive a refresh.
+     *
+     * @return the number of deals written
+     */
+    public int upsertDeals(String feedType, List<Datum> deals, boolean replaceFeed) {
+        SQLiteStatement dealStatement = db.compileStatement(SQL_UPSERT_DEAL);
+        SQLiteStatement merchantStatement = db.compileStatement(SQL_UPSERT_MERCHANT);
+        SQLiteStatement userStatement = db.compileStatement(SQL_UPSERT_DEAL_USER);
+        SQLiteStatement entryStatement = db.compileStatement(SQL_UPSERT_FEED_ENTRY);
+        String[] feedArgs = new String[]{feedType};
+        long fetchedAt = System.currentTimeMillis();
+        int count = 0;
+        db.beginTransaction();
+        try {
+            long position = 0;
+            if (replaceFeed) {
+                db.delete(DbConstants.Tables.FEED_ENTRIES,
+                        DbConstants.FeedEntryCollumn.FEED_TYPE + " = ?", feedArgs);
+            } else {
+                position = DatabaseUtils.longForQuery(db, "SELECT COALESCE(MAX("
+                        + DbConstants.FeedEntryCollumn.POSITION + ") + 1, 0) FROM "
+                        + DbConstants.Tables.FEED_ENTRIES + " WHERE "
+                        + DbConstants.FeedEntryCollumn.FEED_TYPE + " = ?", feedArgs);
+            }
+            for (Datum dealData : deals) {
+                if (dealData.getId() == null) {
+                    continue;
+                }
+                Merchant merchant = dealData.getMerchant();
+                if (merchant != null && merchant.getId() != null) {
+                    merchantStatement.clearBindings();
+                    bindNullable(merchantStatement, 1, merchant.getId());
+                    bindNullable(merchantStatement, 2, merchant.getName());
+                    bindNullable(merchantStatement, 3, merchant.getImage());
+                    bindNullable(merchantStatement, 4, merchant.getPermalink());
+                    bindNullable(merchantStatement, 5, merchant.getRecommendation());
+                    bindNullable(merchantStatement, 6, merchant.getRecommendationFlag());
+                    bindNullable(merchantStatement, 7, merchant.getAverageRating());
+                    merchantStatement.executeInsert();
+                }
+                User user = dealData.getUser();
+                if (user != null && user.getId() != null) {
+                    userStatement.clearBindings();
+                    bindNullable(userStatement, 1, user.getId());
+                    bindNullable(userStatement, 2, user.getName());
+                    bindNullable(userStatement, 3, user.getImage());
+                    bindNullable(userStatement, 4, user.getRank());
+                    bindNullable(userStatement, 5, user.getCurrentDimes());
+                    bindNullable(userStatement, 6, user.getKarma());
+                    bindNullable(userStatement, 7, user.getFpdCount());
+                    userStatement.executeInsert();
+                }
+
+                dealStatement.clearBindings();
+                bindNullable(dealStatement, 1, dealData.getId());
+                bindNullable(dealStatement, 2, dealData.getTitle());
+                bindNullable(dealStatement, 3, dealData.getDescription());
+                bindNullable(dealStatement, 4, dealData.getImage());
+                bindNullable(dealStatement, 5, dealData.getFpdFlag());
+                bindNullable(dealStatement, 6, dealData.getOffPercent());
+                bindNullable(dealStatement, 7, dealData.getCurrentPrice());
+                bindNullable(dealStatement, 8, dealData.getOriginalPrice());
+                bindNullable(dealStatement, 9, dealData.getCommentsCount());
+                bindNullable(dealStatement, 10, dealData.getAllPostsCount());
+                bindNullable(dealStatement, 11, dealData.getCreatedAt());
+                bindNullable(dealStatement, 12, dealData.getScore());
+                bindNullable(dealStatement, 13, dealData.getVoteValue());
+                bindNullable(dealStatement, 14, dealData.getState());
+                bindNullable(dealStatement, 15, dealData.getShareUrl());
+                bindNullable(dealStatement, 16, dealData.getDealUrl());
+                bindNullable(dealStatement, 17, dealData.getViewCount());
+                bindNullable(dealStatement, 18, dealData.getVoteCount());
+                bindNullable(dealStatement, 19, dealData.getFpdSuggestted());
+                bindNullable(dealStatement, 20, dealData.getFrontPageSuggestionsCount());
+                bindNullable(dealStatement, 21, merchant != null ? merchant.getId() : null);
+                bindNullable(dealStatement, 22, user != null ? user.getId() : null);
+                dealStatement.executeInsert();
+
+                entryStatement.clearBindings();
+                entryStatement.bindString(1, feedType);
+                entryStatement.bindLong(2, dealData.getId());
+                entryStatement.bindLong(3, position++);
+                entryStatement.bindLong(4, fetchedAt);
+                entryStatement.executeInsert();
+                count++;
+            }
+            if (replaceFeed) {
+                deleteOrphans();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            dealStatement.close();
+            merchantStatement.close();
+            userStatement.close();
+            entryStatement.close();
+        }
+        return count;
+    }
+
+    /**
+     * Same as {@link #upsertDeals(String, List, boolean)} but runs on the
+     * disk executor, off the calling (usually main) thread. An empty page is
+     * ignored so that a failed or empty response never wipes the cache.
+     * {@code onWritten}, when not null, runs on the disk executor once the
+     * page was written, and not at all when it was not.
+     */
+    public void upsertDealsAsync(final String feedType, List<Datum> deals, final boolean replaceFeed,
+                                 final Runnable onWritten) {
+        if (deals == null || deals.isEmpty()) {
+            return;
+        }
+        final List<Datum> snapshot = new ArrayList<>(deals);
+        AppExecutors.diskIO().execute(() -> {
+            try {
+                open();
+                upsertDeals(feedType, snapshot, replaceFeed);
+                if (onWritten != null) {
+                    onWritten.run();
+                }
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            } finally {
+                close();
+            }
+        });
+    }
+
+    /**
+     * Returns the cached deals of the given feed type in feed order, with the
+     * merchant and user of every deal attached.
+     */
+    public List<Datum> getFeedDeals(String feedType) {
+        List<Datum> list = new ArrayList<>();
+        Cursor cursor = db.rawQuery(SQL_SELECT_FEED_DEALS, new String[]{feedType});
+        try {
+            while (cursor.moveToNext()) {
+                list.add(readDeal(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return list;
+    }
+
+    public boolean hasCachedDeals(String feedType) {
+        return DatabaseUtils.queryNumEntries(db, DbConstants.Tables.FEED_ENTRIES,
+                DbConstants.FeedEntryCollumn.FEED_TYPE + " = ?", new String[]{feedType}) > 0;
+    }
+
+    /**
+     * Returns when the oldest cached entry of the feed was fetched, in epoch
+     * milliseconds, or 0 when the feed has no entries or predates the
+     * timestamp.
+     */
+    public long getFeedFetchedAt(String feedType) {
+        return DatabaseUtils.longForQuery(db, "SELECT COALESCE(MIN("
+                + DbConstants.FeedEntryCollumn.FETCHED_AT + "), 0) FROM "
+                + DbConstants.Tables.FEED_ENTRIES + " WHERE "
+                + DbConstants.FeedEntryCollumn.FEED_TYPE + " = ?", new String[]{feedType});
+    }
+
+    /**
+     * Marks the cached entries of the feed as fetched now, for a refresh the
+     * server answered with 304 Not Modified.
+     */
+    public void touchFeed(String feedType) {
+        ContentValues values = new ContentValues();
+        values.put(DbConstants.FeedEntryCollumn.FETCHED_AT, System.currentTimeMillis());
+        db.update(DbConstants.Tables.FEED_ENTRIES, values,
+                DbConstants.FeedEntryCollumn.FEED_TYPE + " = ?", new String[]{feedType});
+    }
+
+    private void deleteOrphans() {
+        db.execSQL("DELETE FROM " + DbConstants.Tables.DEALS + " WHERE "
+                + DbConstants.DealCollumn._ID + " NOT IN (SELECT "
+                + DbConstants.FeedEntryCollumn.DEAL_ID + " FROM " + DbConstants.Tables.FEED_ENTRIES + ")");
+        db.execSQL("DELETE FROM " + DbConstants.Tables.MERCHANTS + " WHERE "
+                + DbConstants.MerchantCollumn._ID + " NOT IN (SELECT "
+                + DbConstants.DealCollumn.MERCHANT_ID + " FROM " + DbConstants.Tables.DEALS
+                + " WHERE " + DbConstants.DealCollumn.MERCHANT_ID + " IS NOT NULL)");
+        db.execSQL("DELETE FROM " + DbConstants.Tables.DEAL_USERS + " WHERE "
+                + DbConstants.DealUserCollumn._ID + " NOT IN (SELECT "
+                + DbConstants.DealCollumn.USER_ID + " FROM " + DbConstants.Tables.DEALS
+                + " WHERE " + DbConstants.DealCollumn.USER_ID + " IS NOT NULL)");
+    }
+
+    /**
+     * Reads one row of {@link #SQL_SELECT_FEED_DEALS}. Columns are read by
+     * position, in the order of the select list, so no name lookup happens.
+     */
+    private static Datum readDeal(Cursor cursor) {
+        int i = 0;
+        Datum datum = new Datum();
+        datum.setId(getInteger(cursor, i++));
+        datum.setTitle(cursor.getString(i++));
+        datum.setDescription(cursor.getString(i++));
+        datum.setImage(cursor.getString(i++));
+        datum.setFpdFlag(getBoolean(cursor, i++));
+        datum.setOffPercent(cursor.getString(i++));
+        datum.setCurrentPrice(getInteger(cursor, i++));
+        datum.setOriginalPrice(getInteger(cursor, i++));
+        datum.setCommentsCount(getInteger(cursor, i++));
+        datum.setAllPostsCount(getInteger(cursor, i++));
+        datum.setCreatedAt(cursor.isNull(i) ? null : cursor.getLong(i));
+        i++;
+        datum.setScore(getInteger(cursor, i++));
+        datum.setVoteValue(getInteger(cursor, i++));
+        datum.setState(cursor.getString(i++));
+        datum.setShareUrl(cursor.getString(i++));
+        datum.setDealUrl(cursor.getString(i++));
+        datum.setViewCount(getInteger(cursor, i++));
+        datum.setVoteCount(getInteger(cursor, i++));
+        datum.setFpdSuggestted(getBoolean(cursor, i++));
+        datum.setFrontPageSuggestionsCount(getInteger(cursor, i++));
+
+        if (!cursor.isNull(i)) {
+            Merchant merchant = new Merchant();
+            merchant.setId(getInteger(cursor, i));
+            merchant.setName(cursor.getString(i + 1));
+            merchant.setImage(cursor.getString(i + 2));
+            merchant.setPermalink(cursor.getString(i + 3));
+            merchant.setRecommendation(getInteger(cursor, i + 4));
+            merchant.setRecommendationFlag(getBoolean(cursor, i + 5));
+            merchant.setAverageRating(cursor.getString(i + 6));
+            datum.setMerchant(merchant);
+        }
+        i += 7;
+
+        if (!cursor.isNull(i)) {
+            User user = new User();
+            user.setId(getInteger(cursor, i));
+            user.setName(cursor.getString(i + 1));
+            user.setImage(cursor.getString(i + 2));
+            user.setRank(cursor.getString(i + 3));
+            user.setCurrentDimes(getInteger(cursor, i + 4));
+            user.setKarma(getInteger(cursor, i + 5));
+            user.setFpdCount(getInteger(cursor, i + 6));
+            datum.setUser(user);
+        }
+        return datum;
+    }
+
+    private static Integer getInteger(Cursor cursor, int index) {
+        return cursor.isNull(index) ? null : cursor.getInt(index);
+    }
+
+    private static Boolean getBoolean(Cursor cursor, int index) {
+        return cursor.isNull(index) ? null : cursor.getInt(index) != 0;
+    }
+
+    private static void bindNullable(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    private static void bindNullable(SQLiteStatement statement, int index, Number value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindLong(index, value.longValue());
+        }
+    }
+
+    private static void bindNullable(SQLiteStatement statement, int index, Boolean value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindLong(index, value ? 1 : 0);
+        }
     }
 
     public Cursor getAllUserAccountData() {
@@ -101,32 +607,12 @@ public class DBAdapter {
         Cursor cursor = db.rawQuery(selectQuery, null);
         return cursor;
     }
-    public Cursor getAllTopDeals() {
-        String selectQuery = " select * from " + DbConstants.Tables.TOP_DEALS;
-        Cursor cursor = db.rawQuery(selectQuery, null);
-        return cursor;
-    }
-    public Cursor getAllPopularDeals() {
-        String selectQuery = " select * from " + DbConstants.Tables.POPULAR_DEALS;
-        Cursor cursor = db.rawQuery(selectQuery, null);
-        return cursor;
-    }
-
-    public boolean updateTopDealsByDealId(int dealId) {
-        String[] whereClauseArgument = new String[1];
-        whereClauseArgument[0] = "" + dealId;
-        ContentValues initialValues = new ContentValues();
-        long id = db.update(DbConstants.Tables.TOP_DEALS, initialValues, DbConstants.TopDealCollumn._ID + "= ? ", whereClauseArgument);
-        if (id <= 0) {
-            return false;
-        } else {
-            return true;
-        }
-    }
     public boolean deleteTopDealsByDealId(int dealId) {
-        String[] whereClauseArgument = new String[1];
-        whereClauseArgument[0] = "" + dealId;
-        long id = db.delete(DbConstants.Tables.TOP_DEALS, DbConstants.TopDealCollumn._ID + " = ?", whereClauseArgument);
+        String[] whereClauseArgument = new String[2];
+        whereClauseArgument[0] = DbConstants.FeedType.TOP;
+        whereClauseArgument[1] = "" + dealId;
+        long id = db.delete(DbConstants.Tables.FEED_ENTRIES, DbConstants.FeedEntryCollumn.FEED_TYPE + " = ? AND "
+                + DbConstants.FeedEntryCollumn.DEAL_ID + " = ?", whereClauseArgument);
         if (id <= 0) {
             return false;
         } else {
@@ -7,9 +7,18 @@ package demo.paritycube.com.deals.db;
 public interface DbConstants {
         interface Tables {
             String USER_ACCOUNT="user_log_table";
+            String DEALS = "deal_table";
+            String MERCHANTS = "merchant_table";
+            String DEAL_USERS = "deal_user_table";
+            String FEED_ENTRIES = "feed_entry_table";
+            /* Version 1 feed tables, only referenced by the upgrade path. */
             String TOP_DEALS="top_deal_table";
             String POPULAR_DEALS ="popular_deal_table";
         }
+        interface FeedType {
+            String TOP = "top";
+            String POPULAR = "popular";
+        }
         interface UserAccountCollumn{
             String _ID = "_id";
             String USEREMAIL ="user_email";
@@ -17,6 +26,54 @@ public interface DbConstants {
             String PROFILELINK ="profile_image";
 
         }
+        interface DealCollumn{
+            String _ID = "_id";
+            String TITLE = "title";
+            String DESCRIPTION = "description";
+            String IMAGEURL = "image_url";
+            String FPD_FLAG = "fpd_flag";
+            String OFF_PERCENT = "off_percent";
+            String CURRENT_PRICE = "current_price";
+            String ORIGINAL_PRICE = "original_price";
+            String COMMENTS_COUNT = "comments_count";
+            String ALL_POSTS_COUNT = "all_posts_count";
+            String CREATED_AT = "created_at";
+            String SCORE = "score";
+            String VOTE_VALUE = "vote_value";
+            String STATE = "state";
+            String SHARE_URL = "share_url";
+            String DEAL_URL = "deal_url";
+            String VIEW_COUNT = "view_count";
+            String VOTE_COUNT = "vote_count";
+            String FPD_SUGGESTED = "fpd_suggested";
+            String FRONT_PAGE_SUGGESTIONS_COUNT = "front_page_suggestions_count";
+            String MERCHANT_ID = "merchant_id";
+            String USER_ID = "user_id";
+        }
+        interface MerchantCollumn{
+            String _ID = "_id";
+            String NAME = "name";
+            String IMAGE = "image";
+            String PERMALINK = "permalink";
+            String RECOMMENDATION = "recommendation";
+            String RECOMMENDATION_FLAG = "recommendation_flag";
+            String AVERAGE_RATING = "average_rating";
+        }
+        interface DealUserCollumn{
+            String _ID = "_id";
+            String NAME = "name";
+            String IMAGE = "image";
+            String RANK = "rank";
+            String CURRENT_DIMES = "current_dimes";
+            String KARMA = "karma";
+            String FPD_COUNT = "fpd_count";
+        }
+        interface FeedEntryCollumn{
+            String FEED_TYPE = "feed_type";
+            String DEAL_ID = "deal_id";
+            String POSITION = "position";
+            String FETCHED_AT = "fetched_at";
+        }
         interface TopDealCollumn{
             String _ID ="_id";
             String TITLE = "title";
@@ -38,17 +95,64 @@ public interface DbConstants {
             + UserAccountCollumn.PROFILELINK + " TEXT DEFAULT NULL, "
             + "UNIQUE (" + UserAccountCollumn._ID + ") ON CONFLICT REPLACE)";
 
-    String SQL_CREATE_TOPDEAL = "CREATE TABLE " + Tables.TOP_DEALS + " ("
-            + TopDealCollumn._ID + " TEXT PRIMARY KEY, "
-            + TopDealCollumn.TITLE + " TEXT DEFAULT NULL, "
-            + TopDealCollumn.DESCRIPTION + " TEXT DEFAULT NULL, "
-            + TopDealCollumn.IMAGEURL + " TEXT DEFAULT NULL, "
-            + "UNIQUE (" + TopDealCollumn._ID + ") ON CONFLICT REPLACE)";
-
-    String SQL_CREATE_POPULARDEAL = "CREATE TABLE " + Tables.POPULAR_DEALS + " ("
-            + PopularDealCollumn._ID + " TEXT PRIMARY KEY, "
-            + PopularDealCollumn.TITLE + " TEXT DEFAULT NULL, "
-            + PopularDealCollumn.DESCRIPTION + " TEXT DEFAULT NULL, "
-            + PopularDealCollumn.IMAGEURL + " TEXT DEFAULT NULL, "
-            + "UNIQUE (" + PopularDealCollumn._ID + ") ON CONFLICT REPLACE)";
+    String SQL_CREATE_DEALS = "CREATE TABLE IF NOT EXISTS " + Tables.DEALS + " ("
+            + DealCollumn._ID + " INTEGER PRIMARY KEY, "
+            + DealCollumn.TITLE + " TEXT DEFAULT NULL, "
+            + DealCollumn.DESCRIPTION + " TEXT DEFAULT NULL, "
+            + DealCollumn.IMAGEURL + " TEXT DEFAULT NULL, "
+            + DealCollumn.FPD_FLAG + " INTEGER DEFAULT NULL, "
+            + DealCollumn.OFF_PERCENT + " TEXT DEFAULT NULL, "
+            + DealCollumn.CURRENT_PRICE + " INTEGER DEFAULT NULL, "
+            + DealCollumn.ORIGINAL_PRICE + " INTEGER DEFAULT NULL, "
+            + DealCollumn.COMMENTS_COUNT + " INTEGER DEFAULT NULL, "
+            + DealCollumn.ALL_POSTS_COUNT + " INTEGER DEFAULT NULL, "
+            + DealCollumn.CREATED_AT + " INTEGER DEFAULT NULL, "
+            + DealCollumn.SCORE + " INTEGER DEFAULT NULL, "
+            + DealCollumn.VOTE_VALUE + " INTEGER DEFAULT NULL, "
+            + DealCollumn.STATE + " TEXT DEFAULT NULL, "
+            + DealCollumn.SHARE_URL + " TEXT DEFAULT NULL, "
+            + DealCollumn.DEAL_URL + " TEXT DEFAULT NULL, "
+            + DealCollumn.VIEW_COUNT + " INTEGER DEFAULT NULL, "
+            + DealCollumn.VOTE_COUNT + " INTEGER DEFAULT NULL, "
+            + DealCollumn.FPD_SUGGESTED + " INTEGER DEFAULT NULL, "
+            + DealCollumn.FRONT_PAGE_SUGGESTIONS_COUNT + " INTEGER DEFAULT NULL, "
+            + DealCollumn.MERCHANT_ID + " INTEGER DEFAULT NULL, "
+            + DealCollumn.USER_ID + " INTEGER DEFAULT NULL)";
+
+    String SQL_CREATE_MERCHANTS = "CREATE TABLE IF NOT EXISTS " + Tables.MERCHANTS + " ("
+            + MerchantCollumn._ID + " INTEGER PRIMARY KEY, "
+            + MerchantCollumn.NAME + " TEXT DEFAULT NULL, "
+            + MerchantCollumn.IMAGE + " TEXT DEFAULT NULL, "
+            + MerchantCollumn.PERMALINK + " TEXT DEFAULT NULL, "
+            + MerchantCollumn.RECOMMENDATION + " INTEGER DEFAULT NULL, "
+            + MerchantCollumn.RECOMMENDATION_FLAG + " INTEGER DEFAULT NULL, "
+            + MerchantCollumn.AVERAGE_RATING + " TEXT DEFAULT NULL)";
+
+    String SQL_CREATE_DEAL_USERS = "CREATE TABLE IF NOT EXISTS " + Tables.DEAL_USERS + " ("
+            + DealUserCollumn._ID + " INTEGER PRIMARY KEY, "
+            + DealUserCollumn.NAME + " TEXT DEFAULT NULL, "
+            + DealUserCollumn.IMAGE + " TEXT DEFAULT NULL, "
+            + DealUserCollumn.RANK + " TEXT DEFAULT NULL, "
+            + DealUserCollumn.CURRENT_DIMES + " INTEGER DEFAULT NULL, "
+            + DealUserCollumn.KARMA + " INTEGER DEFAULT NULL, "
+            + DealUserCollumn.FPD_COUNT + " INTEGER DEFAULT NULL)";
+
+    String SQL_CREATE_FEED_ENTRIES = "CREATE TABLE IF NOT EXISTS " + Tables.FEED_ENTRIES + " ("
+            + FeedEntryCollumn.FEED_TYPE + " TEXT NOT NULL, "
+            + FeedEntryCollumn.DEAL_ID + " INTEGER NOT NULL, "
+            + FeedEntryCollumn.POSITION + " INTEGER NOT NULL, "
+            + FeedEntryCollumn.FETCHED_AT + " INTEGER NOT NULL DEFAULT 0, "
+            + "PRIMARY KEY (" + FeedEntryCollumn.FEED_TYPE + ", " + FeedEntryCollumn.DEAL_ID + ") ON CONFLICT REPLACE)";
+
+    String SQL_ADD_FEED_ENTRY_FETCHED_AT = "ALTER TABLE " + Tables.FEED_ENTRIES + " ADD COLUMN "
+            + FeedEntryCollumn.FETCHED_AT + " INTEGER NOT NULL DEFAULT 0";
+
+    String SQL_CREATE_INDEX_DEAL_CREATED_AT = "CREATE INDEX IF NOT EXISTS idx_deal_created_at ON "
+            + Tables.DEALS + " (" + DealCollumn.CREATED_AT + ")";
+
+    String SQL_CREATE_INDEX_DEAL_SCORE = "CREATE INDEX IF NOT EXISTS idx_deal_score ON "
+            + Tables.DEALS + " (" + DealCollumn.SCORE + ")";
+
+    String SQL_CREATE_INDEX_FEED_POSITION = "CREATE INDEX IF NOT EXISTS idx_feed_position ON "
+            + Tables.FEED_ENTRIES + " (" + FeedEntryCollumn.FEED_TYPE + ", " + FeedEntryCollumn.POSITION + ")";
 }
@@ -0,0 +1,122 @@
+package demo.paritycube.com.deals.db;
+
+import android.content.Context;
+import android.database.SQLException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import demo.paritycube.com.deals.core.tools.executor.AppExecutors;
+import demo.paritycube.com.deals.pojo.Datum;
+
+/**
+ * Stale-while-revalidate access to one cached deal feed. The cached deals are
+ * read in a background task and handed to the caller together with whether
+ * they are still within the freshness TTL. The caller renders them
+ * and only goes to the network when they are stale (or missing), merging the
+ * refreshed pages in through {@link #save(List, boolean, Runnable)}.
+ */
+public class DealsRepository {
+    /* Properties */
+    public static final long DEFAULT_TTL_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final DBAdapter m_dbAdapter;
+    private final String m_feedType;
+    private final long m_ttlMs;
+
+    /**
+     * The cached deals of the feed and whether they can be shown without a
+     * refresh.
+     */
+    public static class CachedFeed {
+        private final List<Datum> m_deals;
+        private final boolean m_fresh;
+
+        CachedFeed(List<Datum> deals, boolean fresh) {
+            m_deals = deals;
+            m_fresh = fresh;
+        }
+
+        /**
+         * Returns the cached deals in feed order, empty when nothing is
+         * cached.
+         */
+        public List<Datum> getDeals() {
+            return m_deals;
+        }
+
+        /**
+         * Returns true when the cache was fetched less than the TTL ago and
+         * no refresh is needed.
+         */
+        public boolean isFresh() {
+            return m_fresh;
+        }
+    }
+
+    /* Initializations */
+    public DealsRepository(Context context, String feedType) {
+        this(context, feedType, DEFAULT_TTL_MS);
+    }
+
+    public DealsRepository(Context context, String feedType, long ttlMs) {
+        m_dbAdapter = DBAdapter.getInstance(context);
+        m_feedType = feedType;
+        m_ttlMs = ttlMs;
+    }
+
+    /**
+     * Reads the cached feed. This blocks on the database: run it as a
+     * background task of the screen, which drops the result once the view is
+     * gone. With write-ahead logging the read does not wait on a page being
+     * written on the disk executor.
+     */
+    public CachedFeed readCached() {
+        List<Datum> deals = Collections.emptyList();
+        long fetchedAt = 0;
+        try {
+            m_dbAdapter.open();
+            deals = m_dbAdapter.getFeedDeals(m_feedType);
+            fetchedAt = m_dbAdapter.getFeedFetchedAt(m_feedType);
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+        } finally {
+            m_dbAdapter.close();
+        }
+        return new CachedFeed(deals, !deals.isEmpty() && isFresh(fetchedAt));
+    }
+
+    /**
+     * Writes a page fetched from the network into the cache. The first page
+     * replaces the feed, later pages are appended to it. {@code onSaved},
+     * when not null, runs in the background once the page is stored.
+     */
+    public void save(List<Datum> deals, boolean replaceFeed, Runnable onSaved) {
+        m_dbAdapter.upsertDealsAsync(m_feedType, deals, replaceFeed, onSaved);
+    }
+
+    /**
+     * Restarts the TTL of the cached feed without touching its deals, for a
+     * refresh the server confirmed as not modified.
+     */
+    public void markFresh() {
+        AppExecutors.diskIO().execute(() -> {
+            try {
+                m_dbAdapter.open();
+                m_dbAdapter.touchFeed(m_feedType);
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            } finally {
+                m_dbAdapter.close();
+            }
+        });
+    }
+
+    /* Internal methods */
+
+    private boolean isFresh(long fetchedAt) {
+        long age = System.currentTimeMillis() - fetchedAt;
+        return fetchedAt > 0 && age >= 0 && age < m_ttlMs;
+    }
+}
@@ -0,0 +1,164 @@
+package demo.paritycube.com.deals.pojo.adapter;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import demo.paritycube.com.deals.pojo.Datum;
+import demo.paritycube.com.deals.pojo.Merchant;
+import demo.paritycube.com.deals.pojo.User;
+import demo.paritycube.com.deals.pojo.VoteDownReason;
+
+import static demo.paritycube.com.deals.pojo.adapter.JsonAdapters.readBoolean;
+import static demo.paritycube.com.deals.pojo.adapter.JsonAdapters.readInteger;
+import static demo.paritycube.com.deals.pojo.adapter.JsonAdapters.readLong;
+import static demo.paritycube.com.deals.pojo.adapter.JsonAdapters.readString;
+import static demo.paritycube.com.deals.pojo.adapter.JsonAdapters.writeField;
+import static demo.paritycube.com.deals.pojo.adapter.JsonAdapters.writeLong;
+
+public class DatumTypeAdapter extends TypeAdapter<Datum> {
+    private final TypeAdapter<VoteDownReason> m_voteDownReasonAdapter;
+    private final TypeAdapter<Merchant> m_merchantAdapter;
+    private final TypeAdapter<User> m_userAdapter;
+
+    public DatumTypeAdapter(TypeAdapter<VoteDownReason> voteDownReasonAdapter,
+                            TypeAdapter<Merchant> merchantAdapter,
+                            TypeAdapter<User> userAdapter) {
+        m_voteDownReasonAdapter = voteDownReasonAdapter;
+        m_merchantAdapter = merchantAdapter;
+        m_userAdapter = userAdapter;
+    }
+
+    @Override
+    public Datum read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Datum datum = new Datum();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    datum.setId(readInteger(in));
+                    break;
+                case "title":
+                    datum.setTitle(readString(in));
+                    break;
+                case "fpd_flag":
+                    datum.setFpdFlag(readBoolean(in));
+                    break;
+                case "off_percent":
+                    datum.setOffPercent(readString(in));
+                    break;
+                case "current_price":
+                    datum.setCurrentPrice(readInteger(in));
+                    break;
+                case "original_price":
+                    datum.setOriginalPrice(readInteger(in));
+                    break;
+                case "image":
+                    datum.setImage(readString(in));
+                    break;
+                case "comments_count":
+                    datum.setCommentsCount(readInteger(in));
+                    break;
+                case "all_posts_count":
+                    datum.setAllPostsCount(readInteger(in));
+                    break;
+                case "created_at":
+                    datum.setCreatedAt(readLong(in));
+                    break;
+                case "score":
+                    datum.setScore(readInteger(in));
+                    break;
+                case "vote_value":
+                    datum.setVoteValue(readInteger(in));
+                    break;
+                case "state":
+                    datum.setState(readString(in));
+                    break;
+                case "description":
+                    datum.setDescription(readString(in));
+                    break;
+                case "share_url":
+                    datum.setShareUrl(readString(in));
+                    break;
+                case "deal_url":
+                    datum.setDealUrl(readString(in));
+                    break;
+                case "view_count":
+                    datum.setViewCount(readInteger(in));
+                    break;
+                case "vote_down_reason":
+                    datum.setVoteDownReason(m_voteDownReasonAdapter.read(in));
+                    break;
+                case "vote_count":
+                    datum.setVoteCount(readInteger(in));
+                    break;
+                case "fpd_suggestted":
+                    datum.setFpdSuggestted(readBoolean(in));
+                    break;
+                case "front_page_suggestions_count":
+                    datum.setFrontPageSuggestionsCount(readInteger(in));
+                    break;
+                case "merchant":
+                    datum.setMerchant(m_merchantAdapter.read(in));
+                    break;
+                case "user":
+                    datum.setUser(m_userAdapter.read(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return datum;
+    }
+
+    @Override
+    public void write(JsonWriter out, Datum datum) throws IOException {
+        if (datum == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeField(out, "id", datum.getId());
+        writeField(out, "title", datum.getTitle());
+        writeField(out, "fpd_flag", datum.getFpdFlag());
+        writeField(out, "off_percent", datum.getOffPercent());
+        writeField(out, "current_price", datum.getCurrentPrice());
+        writeField(out, "original_price", datum.getOriginalPrice());
+        writeField(out, "image", datum.getImage());
+        writeField(out, "comments_count", datum.getCommentsCount());
+        writeField(out, "all_posts_count", datum.getAllPostsCount());
+        writeLong(out, "created_at", datum.getCreatedAt());
+        writeField(out, "score", datum.getScore());
+        writeField(out, "vote_value", datum.getVoteValue());
+        writeField(out, "state", datum.getState());
+        writeField(out, "description", datum.getDescription());
+        writeField(out, "share_url", datum.getShareUrl());
+        writeField(out, "deal_url", datum.getDealUrl());
+        writeField(out, "view_count", datum.getViewCount());
+        if (datum.getVoteDownReason() != null) {
+            out.name("vote_down_reason");
+            m_voteDownReasonAdapter.write(out, datum.getVoteDownReason());
+        }
+        writeField(out, "vote_count", datum.getVoteCount());
+        writeField(out, "fpd_suggestted", datum.getFpdSuggestted());
+        writeField(out, "front_page_suggestions_count", datum.getFrontPageSuggestionsCount());
+        if (datum.getMerchant() != null) {
+            out.name("merchant");
+            m_merchantAdapter.write(out, datum.getMerchant());
+        }
+        if (datum.getUser() != null) {
+            out.name("user");
+            m_userAdapter.write(out, datum.getUser());
+        }
+        out.endObject();
+    }
+}
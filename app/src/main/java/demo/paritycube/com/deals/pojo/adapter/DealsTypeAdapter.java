@@ -0,0 +1,83 @@
+package demo.paritycube.com.deals.pojo.adapter;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import demo.paritycube.com.deals.pojo.Datum;
+import demo.paritycube.com.deals.pojo.Deals;
+
+import static demo.paritycube.com.deals.pojo.adapter.JsonAdapters.readInteger;
+import static demo.paritycube.com.deals.pojo.adapter.JsonAdapters.writeField;
+
+public class DealsTypeAdapter extends TypeAdapter<Deals> {
+    private final TypeAdapter<Datum> m_datumAdapter;
+
+    public DealsTypeAdapter(TypeAdapter<Datum> datumAdapter) {
+        m_datumAdapter = datumAdapter;
+    }
+
+    @Override
+    public Deals read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Deals deals = new Deals();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "total_count":
+                    deals.setTotalCount(readInteger(in));
+                    break;
+                case "data":
+                    deals.setData(readData(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return deals;
+    }
+
+    private List<Datum> readData(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<Datum> data = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            data.add(m_datumAdapter.read(in));
+        }
+        in.endArray();
+        return data;
+    }
+
+    @Override
+    public void write(JsonWriter out, Deals deals) throws IOException {
+        if (deals == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeField(out, "total_count", deals.getTotalCount());
+        List<Datum> data = deals.getData();
+        if (data != null) {
+            out.name("data");
+            out.beginArray();
+            for (Datum datum : data) {
+                m_datumAdapter.write(out, datum);
+            }
+            out.endArray();
+        }
+        out.endObject();
+    }
+}
@@ -0,0 +1,77 @@
+package demo.paritycube.com.deals.pojo.adapter;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Null-aware read / write helpers shared by the pojo type adapters.
+ */
+final class JsonAdapters {
+
+    private JsonAdapters() {
+    }
+
+    static String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    static Integer readInteger(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextInt();
+    }
+
+    static Long readLong(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextLong();
+    }
+
+    static Boolean readBoolean(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextBoolean();
+    }
+
+    /**
+     * Writes the long as a JSON string, matching the
+     * {@link com.google.gson.LongSerializationPolicy#STRING} policy the
+     * serializer has always used.
+     */
+    static void writeLong(JsonWriter out, String name, Long value) throws IOException {
+        if (value != null) {
+            out.name(name).value(String.valueOf(value));
+        }
+    }
+
+    static void writeField(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    static void writeField(JsonWriter out, String name, Number value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    static void writeField(JsonWriter out, String name, Boolean value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+}
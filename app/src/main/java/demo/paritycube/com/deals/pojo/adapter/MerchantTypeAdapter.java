@@ -0,0 +1,75 @@
+package demo.paritycube.com.deals.pojo.adapter;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import demo.paritycube.com.deals.pojo.Merchant;
+
+import static demo.paritycube.com.deals.pojo.adapter.JsonAdapters.readBoolean;
+import static demo.paritycube.com.deals.pojo.adapter.JsonAdapters.readInteger;
+import static demo.paritycube.com.deals.pojo.adapter.JsonAdapters.readString;
+import static demo.paritycube.com.deals.pojo.adapter.JsonAdapters.writeField;
+
+public class MerchantTypeAdapter extends TypeAdapter<Merchant> {
+
+    @Override
+    public Merchant read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Merchant merchant = new Merchant();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    merchant.setId(readInteger(in));
+                    break;
+                case "name":
+                    merchant.setName(readString(in));
+                    break;
+                case "image":
+                    merchant.setImage(readString(in));
+                    break;
+                case "permalink":
+                    merchant.setPermalink(readString(in));
+                    break;
+                case "recommendation":
+                    merchant.setRecommendation(readInteger(in));
+                    break;
+                case "recommendation_flag":
+                    merchant.setRecommendationFlag(readBoolean(in));
+                    break;
+                case "average_rating":
+                    merchant.setAverageRating(readString(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return merchant;
+    }
+
+    @Override
+    public void write(JsonWriter out, Merchant merchant) throws IOException {
+        if (merchant == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeField(out, "id", merchant.getId());
+        writeField(out, "name", merchant.getName());
+        writeField(out, "image", merchant.getImage());
+        writeField(out, "permalink", merchant.getPermalink());
+        writeField(out, "recommendation", merchant.getRecommendation());
+        writeField(out, "recommendation_flag", merchant.getRecommendationFlag());
+        writeField(out, "average_rating", merchant.getAverageRating());
+        out.endObject();
+    }
+}
@@ -0,0 +1,58 @@
+package demo.paritycube.com.deals.pojo.adapter;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+import demo.paritycube.com.deals.pojo.Datum;
+import demo.paritycube.com.deals.pojo.Deals;
+import demo.paritycube.com.deals.pojo.Merchant;
+import demo.paritycube.com.deals.pojo.SeoSetting;
+import demo.paritycube.com.deals.pojo.TopDeals;
+import demo.paritycube.com.deals.pojo.User;
+import demo.paritycube.com.deals.pojo.UserInfo;
+import demo.paritycube.com.deals.pojo.VoteDownReason;
+
+/**
+ * Supplies the hand-written streaming adapters for every class of the pojo
+ * package, so that no reflective {@code ReflectiveTypeAdapterFactory} lookup
+ * happens when parsing the deal feeds. The adapters are stateless and are
+ * built once per factory.
+ */
+public class PojoTypeAdapterFactory implements TypeAdapterFactory {
+    private final SeoSettingTypeAdapter m_seoSettingAdapter = new SeoSettingTypeAdapter();
+    private final MerchantTypeAdapter m_merchantAdapter = new MerchantTypeAdapter();
+    private final UserTypeAdapter m_userAdapter = new UserTypeAdapter();
+    private final VoteDownReasonTypeAdapter m_voteDownReasonAdapter = new VoteDownReasonTypeAdapter();
+    private final UserInfoTypeAdapter m_userInfoAdapter = new UserInfoTypeAdapter();
+    private final DatumTypeAdapter m_datumAdapter =
+            new DatumTypeAdapter(m_voteDownReasonAdapter, m_merchantAdapter, m_userAdapter);
+    private final DealsTypeAdapter m_dealsAdapter = new DealsTypeAdapter(m_datumAdapter);
+    private final TopDealsTypeAdapter m_topDealsAdapter =
+            new TopDealsTypeAdapter(m_seoSettingAdapter, m_dealsAdapter);
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (rawType == TopDeals.class) {
+            return (TypeAdapter<T>) m_topDealsAdapter;
+        } else if (rawType == Deals.class) {
+            return (TypeAdapter<T>) m_dealsAdapter;
+        } else if (rawType == Datum.class) {
+            return (TypeAdapter<T>) m_datumAdapter;
+        } else if (rawType == Merchant.class) {
+            return (TypeAdapter<T>) m_merchantAdapter;
+        } else if (rawType == User.class) {
+            return (TypeAdapter<T>) m_userAdapter;
+        } else if (rawType == SeoSetting.class) {
+            return (TypeAdapter<T>) m_seoSettingAdapter;
+        } else if (rawType == VoteDownReason.class) {
+            return (TypeAdapter<T>) m_voteDownReasonAdapter;
+        } else if (rawType == UserInfo.class) {
+            return (TypeAdapter<T>) m_userInfoAdapter;
+        }
+        return null;
+    }
+}
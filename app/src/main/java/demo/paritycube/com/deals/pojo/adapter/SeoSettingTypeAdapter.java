@@ -0,0 +1,57 @@
+package demo.paritycube.com.deals.pojo.adapter;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import demo.paritycube.com.deals.pojo.SeoSetting;
+
+import static demo.paritycube.com.deals.pojo.adapter.JsonAdapters.readString;
+import static demo.paritycube.com.deals.pojo.adapter.JsonAdapters.writeField;
+
+public class SeoSettingTypeAdapter extends TypeAdapter<SeoSetting> {
+
+    @Override
+    public SeoSetting read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        SeoSetting setting = new SeoSetting();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "title":
+                    setting.setTitle(readString(in));
+                    break;
+                case "description":
+                    setting.setDescription(readString(in));
+                    break;
+                case "web_url":
+                    setting.setWebUrl(readString(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return setting;
+    }
+
+    @Override
+    public void write(JsonWriter out, SeoSetting setting) throws IOException {
+        if (setting == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeField(out, "title", setting.getTitle());
+        writeField(out, "description", setting.getDescription());
+        writeField(out, "web_url", setting.getWebUrl());
+        out.endObject();
+    }
+}
@@ -0,0 +1,66 @@
+package demo.paritycube.com.deals.pojo.adapter;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import demo.paritycube.com.deals.pojo.Deals;
+import demo.paritycube.com.deals.pojo.SeoSetting;
+import demo.paritycube.com.deals.pojo.TopDeals;
+
+public class TopDealsTypeAdapter extends TypeAdapter<TopDeals> {
+    private final TypeAdapter<SeoSetting> m_seoSettingAdapter;
+    private final TypeAdapter<Deals> m_dealsAdapter;
+
+    public TopDealsTypeAdapter(TypeAdapter<SeoSetting> seoSettingAdapter,
+                               TypeAdapter<Deals> dealsAdapter) {
+        m_seoSettingAdapter = seoSettingAdapter;
+        m_dealsAdapter = dealsAdapter;
+    }
+
+    @Override
+    public TopDeals read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        TopDeals topDeals = new TopDeals();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "seo_setting":
+                    topDeals.setSeoSetting(m_seoSettingAdapter.read(in));
+                    break;
+                case "deals":
+                    topDeals.setDeals(m_dealsAdapter.read(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return topDeals;
+    }
+
+    @Override
+    public void write(JsonWriter out, TopDeals topDeals) throws IOException {
+        if (topDeals == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (topDeals.getSeoSetting() != null) {
+            out.name("seo_setting");
+            m_seoSettingAdapter.write(out, topDeals.getSeoSetting());
+        }
+        if (topDeals.getDeals() != null) {
+            out.name("deals");
+            m_dealsAdapter.write(out, topDeals.getDeals());
+        }
+        out.endObject();
+    }
+}
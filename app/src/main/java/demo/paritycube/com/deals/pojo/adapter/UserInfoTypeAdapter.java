@@ -0,0 +1,66 @@
+package demo.paritycube.com.deals.pojo.adapter;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import demo.paritycube.com.deals.pojo.UserInfo;
+
+import static demo.paritycube.com.deals.pojo.adapter.JsonAdapters.readString;
+import static demo.paritycube.com.deals.pojo.adapter.JsonAdapters.writeField;
+
+/**
+ * The Graph API "picture" object has no meaningful mapping onto
+ * {@link android.graphics.Picture}, so it is skipped on read and never
+ * written.
+ */
+public class UserInfoTypeAdapter extends TypeAdapter<UserInfo> {
+
+    @Override
+    public UserInfo read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        UserInfo userInfo = new UserInfo();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    userInfo.setId(readString(in));
+                    break;
+                case "name":
+                    userInfo.setName(readString(in));
+                    break;
+                case "link":
+                    userInfo.setLink(readString(in));
+                    break;
+                case "email":
+                    userInfo.setEmail(readString(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return userInfo;
+    }
+
+    @Override
+    public void write(JsonWriter out, UserInfo userInfo) throws IOException {
+        if (userInfo == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeField(out, "id", userInfo.getId());
+        writeField(out, "name", userInfo.getName());
+        writeField(out, "link", userInfo.getLink());
+        writeField(out, "email", userInfo.getEmail());
+        out.endObject();
+    }
+}
@@ -0,0 +1,74 @@
+package demo.paritycube.com.deals.pojo.adapter;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import demo.paritycube.com.deals.pojo.User;
+
+import static demo.paritycube.com.deals.pojo.adapter.JsonAdapters.readInteger;
+import static demo.paritycube.com.deals.pojo.adapter.JsonAdapters.readString;
+import static demo.paritycube.com.deals.pojo.adapter.JsonAdapters.writeField;
+
+public class UserTypeAdapter extends TypeAdapter<User> {
+
+    @Override
+    public User read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        User user = new User();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    user.setId(readInteger(in));
+                    break;
+                case "name":
+                    user.setName(readString(in));
+                    break;
+                case "image":
+                    user.setImage(readString(in));
+                    break;
+                case "rank":
+                    user.setRank(readString(in));
+                    break;
+                case "current_dimes":
+                    user.setCurrentDimes(readInteger(in));
+                    break;
+                case "karma":
+                    user.setKarma(readInteger(in));
+                    break;
+                case "fpd_count":
+                    user.setFpdCount(readInteger(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return user;
+    }
+
+    @Override
+    public void write(JsonWriter out, User user) throws IOException {
+        if (user == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeField(out, "id", user.getId());
+        writeField(out, "name", user.getName());
+        writeField(out, "image", user.getImage());
+        writeField(out, "rank", user.getRank());
+        writeField(out, "current_dimes", user.getCurrentDimes());
+        writeField(out, "karma", user.getKarma());
+        writeField(out, "fpd_count", user.getFpdCount());
+        out.endObject();
+    }
+}
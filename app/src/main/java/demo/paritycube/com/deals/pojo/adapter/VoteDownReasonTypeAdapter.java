@@ -0,0 +1,36 @@
+package demo.paritycube.com.deals.pojo.adapter;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import demo.paritycube.com.deals.pojo.VoteDownReason;
+
+/**
+ * {@link VoteDownReason} carries no fields yet, so the payload is skipped.
+ */
+public class VoteDownReasonTypeAdapter extends TypeAdapter<VoteDownReason> {
+
+    @Override
+    public VoteDownReason read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        in.skipValue();
+        return new VoteDownReason();
+    }
+
+    @Override
+    public void write(JsonWriter out, VoteDownReason reason) throws IOException {
+        if (reason == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.endObject();
+    }
+}
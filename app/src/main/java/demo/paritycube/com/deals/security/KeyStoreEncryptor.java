@@ -1,25 +1,85 @@
 package demo.paritycube.com.deals.security;
 
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.security.KeyPairGeneratorSpec;
 import android.util.Base64;
 
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
 import java.security.KeyPairGenerator;
 import java.security.KeyStore;
-import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
 import javax.security.auth.x500.X500Principal;
 
+/**
+ * Encrypts small secrets, like the remembered password, for storage in the
+ * preferences. Values are sealed with AES-GCM under a random data key; the
+ * keystore only holds an RSA pair wrapping that data key, since it cannot
+ * keep AES keys before Marshmallow. The wrapped key lives in the preferences
+ * of this class and is unwrapped once per process, so the slow private key
+ * operation and the keystore round trips are paid on the first call only.
+ * That first call can still take a while: call from a background thread,
+ * {@link #warmUp(Context)} runs it during startup.
+ *
+ * The certificate of a key pair has an end date. When it comes close, the
+ * data key is wrapped with a new pair and the old one deleted; values stored
+ * so far stay readable since the data key does not change.
+ *
+ * Values written before the data key existed were RSA encrypted directly
+ * and are still decrypted with the original pair.
+ */
 public class KeyStoreEncryptor
 {
+  /* Properties */
+
   private static final String ANDROID_KEY_STORE = "AndroidKeyStore";
+  private static final String RSA_PROVIDER = "AndroidOpenSSL";
   private static final String KEY_ALIAS = "encryptDecrypt";
+  private static final String PREFS_NAME = "key_store_encryptor";
+  private static final String PREF_KEY_ALIAS = "key_alias";
+  private static final String PREF_WRAPPED_KEY = "wrapped_key";
+  private static final String VERSION_PREFIX = "v2:";
+  private static final String RSA_TRANSFORMATION = "RSA/ECB/PKCS1Padding";
+  private static final String AES_TRANSFORMATION = "AES/GCM/NoPadding";
+  private static final int DATA_KEY_BITS = 256;
+  private static final int IV_BYTES = 12;
+  private static final int TAG_BITS = 128;
+  private static final int KEY_PAIR_VALIDITY_YEARS = 5;
+  private static final long ROTATION_MARGIN_MS = TimeUnit.DAYS.toMillis(30);
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final SecureRandom sm_random = new SecureRandom();
+  private static KeyStore sm_keyStore;
+  private static SecretKey sm_dataKey;
+  private static long sm_rotateAtMs;
+  private static Cipher sm_aesCipher;
+  private static Cipher sm_rsaCipher;
+
+  /* Public methods */
+
+  /**
+   * Loads the data key, creating it or moving it to a new key pair when
+   * needed, so later calls only run the symmetric cipher.
+   */
+  public static synchronized void warmUp (Context context) throws GeneralSecurityException, IOException
+  {
+    getDataKey(context);
+  }
 
-  public static String encrypt (Context context, String input)
+  public static synchronized String encrypt (Context context, String input)
   {
     if (   input == null
         || input.trim().isEmpty())
@@ -30,39 +90,16 @@ public class KeyStoreEncryptor
     String result = null;
     try
     {
-      final KeyStore keyStore = KeyStore.getInstance(ANDROID_KEY_STORE);
-      keyStore.load(null);
-
-      if (!keyStore.containsAlias(KEY_ALIAS))
-      {
-        Calendar cal = Calendar.getInstance();
-        Date startDate = cal.getTime();
-
-        cal.add(Calendar.YEAR, 1);
-        Date endDate = cal.getTime();
-
-        KeyPairGeneratorSpec keySpec = new KeyPairGeneratorSpec.Builder(context)
-            .setAlias(KEY_ALIAS)
-            .setSubject(new X500Principal("CN=AndroidKeyEncryptor, O=Android Authority"))
-            .setSerialNumber(BigInteger.valueOf(System.currentTimeMillis()))
-            .setStartDate(startDate)
-            .setEndDate(endDate)
-            .build();
-
-        KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA", ANDROID_KEY_STORE);
-        keyGen.initialize(keySpec);
-        keyGen.generateKeyPair();
-      }
-
-      KeyStore.PrivateKeyEntry privateKey =
-          (KeyStore.PrivateKeyEntry) keyStore.getEntry(KEY_ALIAS, null);
-      PublicKey publicKey = privateKey.getCertificate().getPublicKey();
+      byte[] iv = new byte[IV_BYTES];
+      sm_random.nextBytes(iv);
+      Cipher cipher = getAesCipher();
+      cipher.init(Cipher.ENCRYPT_MODE, getDataKey(context), new GCMParameterSpec(TAG_BITS, iv));
+      byte[] encryptedBytes = cipher.doFinal(input.getBytes(UTF_8));
 
-      Cipher cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding", "AndroidOpenSSL");
-      cipher.init(Cipher.ENCRYPT_MODE, publicKey);
-      byte[] encryptedBytes = cipher.doFinal(input.getBytes());
-
-      result = Base64.encodeToString(encryptedBytes, Base64.DEFAULT);
+      byte[] envelope = new byte[IV_BYTES + encryptedBytes.length];
+      System.arraycopy(iv, 0, envelope, 0, IV_BYTES);
+      System.arraycopy(encryptedBytes, 0, envelope, IV_BYTES, encryptedBytes.length);
+      result = VERSION_PREFIX + Base64.encodeToString(envelope, Base64.NO_WRAP);
     }
     catch (Exception e)
     {
@@ -71,7 +108,7 @@ public class KeyStoreEncryptor
     return result;
   }
 
-  public static String decrypt (String input)
+  public static synchronized String decrypt (Context context, String input)
   {
     if (   input == null
         || input.trim().isEmpty())
@@ -82,16 +119,17 @@ public class KeyStoreEncryptor
     String result = null;
     try
     {
-      final KeyStore keyStore = KeyStore.getInstance(ANDROID_KEY_STORE);
-      keyStore.load(null);
-
-      KeyStore.PrivateKeyEntry privateKey =
-          (KeyStore.PrivateKeyEntry) keyStore.getEntry(KEY_ALIAS, null);
+      if (!input.startsWith(VERSION_PREFIX))
+      {
+        return decryptLegacy(input);
+      }
 
-      Cipher cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding", "AndroidOpenSSL");
-      cipher.init(Cipher.DECRYPT_MODE, privateKey.getPrivateKey());
-      byte[] decryptedBytes = cipher.doFinal(Base64.decode(input, Base64.DEFAULT));
-      result = new String(decryptedBytes);
+      byte[] envelope = Base64.decode(input.substring(VERSION_PREFIX.length()), Base64.NO_WRAP);
+      Cipher cipher = getAesCipher();
+      cipher.init(Cipher.DECRYPT_MODE, getDataKey(context),
+          new GCMParameterSpec(TAG_BITS, envelope, 0, IV_BYTES));
+      byte[] decryptedBytes = cipher.doFinal(envelope, IV_BYTES, envelope.length - IV_BYTES);
+      result = new String(decryptedBytes, UTF_8);
     }
     catch (Exception e)
     {
@@ -99,4 +137,172 @@ public class KeyStoreEncryptor
     }
     return result;
   }
+
+  /* Internal methods */
+
+  /**
+   * Returns the data key, unwrapping it on the first call. A missing data
+   * key, or one whose key pair is gone or cannot unwrap it anymore, is
+   * replaced by a new one; values sealed with the lost key cannot be read
+   * back and decrypt to null.
+   */
+  private static SecretKey getDataKey (Context context) throws GeneralSecurityException, IOException
+  {
+    if (   sm_dataKey != null
+        && System.currentTimeMillis() < sm_rotateAtMs)
+    {
+      return sm_dataKey;
+    }
+
+    SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    String alias = prefs.getString(PREF_KEY_ALIAS, null);
+    String wrappedKey = prefs.getString(PREF_WRAPPED_KEY, null);
+    KeyStore.PrivateKeyEntry entry = alias != null ? getEntry(alias) : null;
+
+    SecretKey dataKey = sm_dataKey;
+    if (   dataKey == null
+        && entry != null
+        && wrappedKey != null)
+    {
+      try
+      {
+        dataKey = unwrap(entry, wrappedKey);
+      }
+      catch (GeneralSecurityException e)
+      {
+        e.printStackTrace();
+      }
+    }
+    if (   dataKey != null
+        && entry != null
+        && System.currentTimeMillis() < getRotateAtMs(entry))
+    {
+      sm_dataKey = dataKey;
+      sm_rotateAtMs = getRotateAtMs(entry);
+      return dataKey;
+    }
+
+    /* First use, lost key or certificate about to expire: wrap the data key with a new pair. */
+    if (dataKey == null)
+    {
+      KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+      keyGenerator.init(DATA_KEY_BITS, sm_random);
+      dataKey = keyGenerator.generateKey();
+    }
+    String newAlias = KEY_ALIAS + "-" + System.currentTimeMillis();
+    KeyStore.PrivateKeyEntry newEntry = generateKeyPair(context, newAlias);
+    boolean saved = prefs.edit()
+        .putString(PREF_KEY_ALIAS, newAlias)
+        .putString(PREF_WRAPPED_KEY, wrap(newEntry, dataKey))
+        .commit();
+    if (!saved)
+    {
+      getKeyStore().deleteEntry(newAlias);
+      throw new IOException("Cannot store the wrapped data key");
+    }
+    if (alias != null)
+    {
+      getKeyStore().deleteEntry(alias);
+    }
+
+    sm_dataKey = dataKey;
+    sm_rotateAtMs = getRotateAtMs(newEntry);
+    return dataKey;
+  }
+
+  private static String decryptLegacy (String input) throws GeneralSecurityException, IOException
+  {
+    KeyStore.PrivateKeyEntry entry = getEntry(KEY_ALIAS);
+    if (entry == null)
+    {
+      return null;
+    }
+    Cipher cipher = getRsaCipher();
+    cipher.init(Cipher.DECRYPT_MODE, entry.getPrivateKey());
+    return new String(cipher.doFinal(Base64.decode(input, Base64.DEFAULT)), UTF_8);
+  }
+
+  private static String wrap (KeyStore.PrivateKeyEntry entry, SecretKey dataKey)
+      throws GeneralSecurityException
+  {
+    Cipher cipher = getRsaCipher();
+    cipher.init(Cipher.ENCRYPT_MODE, entry.getCertificate().getPublicKey());
+    return Base64.encodeToString(cipher.doFinal(dataKey.getEncoded()), Base64.NO_WRAP);
+  }
+
+  private static SecretKey unwrap (KeyStore.PrivateKeyEntry entry, String wrappedKey)
+      throws GeneralSecurityException
+  {
+    Cipher cipher = getRsaCipher();
+    cipher.init(Cipher.DECRYPT_MODE, entry.getPrivateKey());
+    return new SecretKeySpec(cipher.doFinal(Base64.decode(wrappedKey, Base64.NO_WRAP)), "AES");
+  }
+
+  private static KeyStore.PrivateKeyEntry generateKeyPair (Context context, String alias)
+      throws GeneralSecurityException, IOException
+  {
+    Calendar cal = Calendar.getInstance();
+    Date startDate = cal.getTime();
+
+    cal.add(Calendar.YEAR, KEY_PAIR_VALIDITY_YEARS);
+    Date endDate = cal.getTime();
+
+    KeyPairGeneratorSpec keySpec = new KeyPairGeneratorSpec.Builder(context)
+        .setAlias(alias)
+        .setSubject(new X500Principal("CN=AndroidKeyEncryptor, O=Android Authority"))
+        .setSerialNumber(BigInteger.valueOf(System.currentTimeMillis()))
+        .setStartDate(startDate)
+        .setEndDate(endDate)
+        .build();
+
+    KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA", ANDROID_KEY_STORE);
+    keyGen.initialize(keySpec);
+    keyGen.generateKeyPair();
+    return getEntry(alias);
+  }
+
+  private static long getRotateAtMs (KeyStore.PrivateKeyEntry entry)
+  {
+    X509Certificate certificate = (X509Certificate) entry.getCertificate();
+    return certificate.getNotAfter().getTime() - ROTATION_MARGIN_MS;
+  }
+
+  private static KeyStore.PrivateKeyEntry getEntry (String alias) throws GeneralSecurityException, IOException
+  {
+    KeyStore keyStore = getKeyStore();
+    if (!keyStore.containsAlias(alias))
+    {
+      return null;
+    }
+    return (KeyStore.PrivateKeyEntry) keyStore.getEntry(alias, null);
+  }
+
+  private static KeyStore getKeyStore () throws GeneralSecurityException, IOException
+  {
+    if (sm_keyStore == null)
+    {
+      KeyStore keyStore = KeyStore.getInstance(ANDROID_KEY_STORE);
+      keyStore.load(null);
+      sm_keyStore = keyStore;
+    }
+    return sm_keyStore;
+  }
+
+  private static Cipher getAesCipher () throws GeneralSecurityException
+  {
+    if (sm_aesCipher == null)
+    {
+      sm_aesCipher = Cipher.getInstance(AES_TRANSFORMATION);
+    }
+    return sm_aesCipher;
+  }
+
+  private static Cipher getRsaCipher () throws GeneralSecurityException
+  {
+    if (sm_rsaCipher == null)
+    {
+      sm_rsaCipher = Cipher.getInstance(RSA_TRANSFORMATION, RSA_PROVIDER);
+    }
+    return sm_rsaCipher;
+  }
 }
@@ -0,0 +1,197 @@
+package demo.paritycube.com.deals.util;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import demo.paritycube.com.deals.core.tools.http.JsonSerializer;
+
+/**
+ * Loads the JSON snapshots bundled in the assets. Assets are stored
+ * uncompressed (see aaptOptions in build.gradle) so they can be memory mapped
+ * straight out of the APK and streamed into the JSON reader without copying
+ * the file into a String first. A parsed snapshot is kept (softly) per file,
+ * so loading the same asset again costs nothing.
+ */
+public class AssetJsonLoader
+{
+  /* Properties */
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final Map<String, SoftReference<Object>> sm_snapshots = new HashMap<>();
+
+  /* Public methods */
+
+  /**
+   * Returns the parsed content of the asset, or null when it is missing or
+   * cannot be parsed.
+   */
+  public static synchronized <T> T load (Context context, String fileName, Class<T> cls)
+  {
+    SoftReference<Object> reference = sm_snapshots.get(fileName);
+    Object snapshot = reference != null ? reference.get() : null;
+    if (cls.isInstance(snapshot))
+    {
+      return cls.cast(snapshot);
+    }
+
+    T result = null;
+    try
+    {
+      result = parse(openAsset(context, fileName), cls);
+    }
+    catch (IOException | JsonParseException ex)
+    {
+      ex.printStackTrace();
+    }
+    if (result != null)
+    {
+      sm_snapshots.put(fileName, new SoftReference<Object>(result));
+    }
+    return result;
+  }
+
+  /* Internal methods */
+
+  /**
+   * Maps the asset into memory, or falls back to the regular asset stream
+   * when the asset was compressed into the APK and has no file descriptor.
+   */
+  private static InputStream openAsset (Context context, String fileName) throws IOException
+  {
+    try
+    {
+      return new ByteBufferInputStream(mapAsset(context, fileName));
+    }
+    catch (FileNotFoundException ex)
+    {
+      return new BufferedInputStream(context.getAssets().open(fileName));
+    }
+  }
+
+  /**
+   * Maps the asset read-only out of the APK. Throws FileNotFoundException
+   * when the asset is missing or was compressed and cannot be mapped.
+   */
+  static ByteBuffer mapAsset (Context context, String fileName) throws IOException
+  {
+    AssetFileDescriptor descriptor = context.getAssets().openFd(fileName);
+    FileInputStream input = descriptor.createInputStream();
+    try
+    {
+      FileChannel channel = input.getChannel();
+      return channel.map(FileChannel.MapMode.READ_ONLY,
+          descriptor.getStartOffset(), descriptor.getLength());
+    }
+    finally
+    {
+      /* The mapping stays valid after the channel is closed. */
+      input.close();
+      descriptor.close();
+    }
+  }
+
+  private static <T> T parse (InputStream input, Class<T> cls) throws IOException
+  {
+    JsonReader reader = null;
+    try
+    {
+      skipByteOrderMark(input);
+      reader = new JsonReader(new InputStreamReader(input, UTF_8));
+      return JsonSerializer.serialize(reader, cls);
+    }
+    finally
+    {
+      if (reader != null)
+      {
+        reader.close();
+      }
+      else
+      {
+        input.close();
+      }
+    }
+  }
+
+  /**
+   * Skips a leading UTF-8 byte order mark, which the JSON reader would
+   * otherwise reject.
+   */
+  private static void skipByteOrderMark (InputStream input) throws IOException
+  {
+    input.mark(3);
+    if (input.read() != 0xEF || input.read() != 0xBB || input.read() != 0xBF)
+    {
+      input.reset();
+    }
+  }
+
+  /* ByteBufferInputStream definition */
+
+  private static class ByteBufferInputStream extends InputStream
+  {
+    private final ByteBuffer m_buffer;
+
+    ByteBufferInputStream (ByteBuffer buffer)
+    {
+      m_buffer = buffer;
+    }
+
+    @Override
+    public int read ()
+    {
+      return m_buffer.hasRemaining() ? m_buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read (byte[] bytes, int offset, int length)
+    {
+      if (!m_buffer.hasRemaining())
+      {
+        return -1;
+      }
+      int count = Math.min(length, m_buffer.remaining());
+      m_buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public int available ()
+    {
+      return m_buffer.remaining();
+    }
+
+    @Override
+    public boolean markSupported ()
+    {
+      return true;
+    }
+
+    @Override
+    public synchronized void mark (int readLimit)
+    {
+      m_buffer.mark();
+    }
+
+    @Override
+    public synchronized void reset ()
+    {
+      m_buffer.reset();
+    }
+  }
+}
@@ -0,0 +1,385 @@
+package demo.paritycube.com.deals.util;
+
+import android.content.Context;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import demo.paritycube.com.deals.pojo.Datum;
+import demo.paritycube.com.deals.pojo.Merchant;
+import demo.paritycube.com.deals.pojo.User;
+import demo.paritycube.com.deals.pojo.VoteDownReason;
+
+/**
+ * Reads the binary deal snapshots generated at build time from the bundled
+ * JSON feeds (see app/snapshots.gradle). The snapshot is memory mapped and
+ * only its header is read when opened; a row is decoded the first time it is
+ * asked for, and each distinct string is decoded once and shared by every
+ * row referring to it.
+ *
+ * Layout, big endian:
+ * <pre>
+ * int     magic "PCDS"
+ * short   version
+ * int     total count, MIN_VALUE when missing
+ * int     row count
+ * int     string count n, then n + 1 offsets into the string pool
+ * byte[]  string pool, UTF-8
+ * short   column count, then for each column:
+ *         short name length, UTF-8 name, byte type (I, J, Z or S),
+ *         int payload length, one fixed width value per row
+ * </pre>
+ * Nulls are stored as MIN_VALUE for I (int) and J (long) columns and as -1
+ * for Z (boolean byte) and S (string index) columns.
+ */
+public class DealSnapshot
+{
+  /* Properties */
+
+  private static final int MAGIC = 0x50434453;
+  private static final int VERSION = 1;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final Map<String, SoftReference<DealSnapshot>> sm_snapshots = new HashMap<>();
+
+  private final ByteBuffer m_buffer;
+  private final Integer m_totalCount;
+  private final int m_rowCount;
+  private final int m_stringOffsetsPosition;
+  private final int m_stringPoolPosition;
+  private final String[] m_strings;
+  private final int[] m_columnPositions;
+  private final Datum[] m_rows;
+
+  /* Column definition */
+
+  private enum Column
+  {
+    ID("id", 'I'),
+    TITLE("title", 'S'),
+    FPD_FLAG("fpd_flag", 'Z'),
+    OFF_PERCENT("off_percent", 'S'),
+    CURRENT_PRICE("current_price", 'I'),
+    ORIGINAL_PRICE("original_price", 'I'),
+    IMAGE("image", 'S'),
+    COMMENTS_COUNT("comments_count", 'I'),
+    ALL_POSTS_COUNT("all_posts_count", 'I'),
+    CREATED_AT("created_at", 'J'),
+    SCORE("score", 'I'),
+    VOTE_VALUE("vote_value", 'I'),
+    STATE("state", 'S'),
+    DESCRIPTION("description", 'S'),
+    SHARE_URL("share_url", 'S'),
+    DEAL_URL("deal_url", 'S'),
+    VIEW_COUNT("view_count", 'I'),
+    VOTE_COUNT("vote_count", 'I'),
+    FPD_SUGGESTTED("fpd_suggestted", 'Z'),
+    FRONT_PAGE_SUGGESTIONS_COUNT("front_page_suggestions_count", 'I'),
+    MERCHANT("merchant", 'Z'),
+    MERCHANT_ID("merchant.id", 'I'),
+    MERCHANT_NAME("merchant.name", 'S'),
+    MERCHANT_IMAGE("merchant.image", 'S'),
+    MERCHANT_PERMALINK("merchant.permalink", 'S'),
+    MERCHANT_RECOMMENDATION("merchant.recommendation", 'I'),
+    MERCHANT_RECOMMENDATION_FLAG("merchant.recommendation_flag", 'Z'),
+    MERCHANT_AVERAGE_RATING("merchant.average_rating", 'S'),
+    USER("user", 'Z'),
+    USER_ID("user.id", 'I'),
+    USER_NAME("user.name", 'S'),
+    USER_IMAGE("user.image", 'S'),
+    USER_RANK("user.rank", 'S'),
+    USER_CURRENT_DIMES("user.current_dimes", 'I'),
+    USER_KARMA("user.karma", 'I'),
+    USER_FPD_COUNT("user.fpd_count", 'I');
+
+    final String key;
+    final char type;
+
+    Column (String key, char type)
+    {
+      this.key = key;
+      this.type = type;
+    }
+
+    int width ()
+    {
+      switch (type)
+      {
+        case 'J':
+          return 8;
+        case 'Z':
+          return 1;
+        default:
+          return 4;
+      }
+    }
+  }
+
+  /* Creational */
+
+  /**
+   * Returns the snapshot bundled under the file name, or null when it is
+   * missing or unreadable. Opened snapshots are kept (softly) per file, along
+   * with the rows decoded so far.
+   */
+  public static synchronized DealSnapshot open (Context context, String fileName)
+  {
+    SoftReference<DealSnapshot> reference = sm_snapshots.get(fileName);
+    DealSnapshot snapshot = reference != null ? reference.get() : null;
+    if (snapshot != null)
+    {
+      return snapshot;
+    }
+
+    try
+    {
+      snapshot = new DealSnapshot(AssetJsonLoader.mapAsset(context, fileName));
+    }
+    catch (FileNotFoundException ex)
+    {
+      return null;
+    }
+    catch (IOException | RuntimeException ex)
+    {
+      ex.printStackTrace();
+      return null;
+    }
+    sm_snapshots.put(fileName, new SoftReference<>(snapshot));
+    return snapshot;
+  }
+
+  DealSnapshot (ByteBuffer buffer) throws IOException
+  {
+    m_buffer = buffer;
+    if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION)
+    {
+      throw new IOException("Not a version " + VERSION + " deal snapshot");
+    }
+    int totalCount = buffer.getInt(6);
+    m_totalCount = totalCount == Integer.MIN_VALUE ? null : totalCount;
+    m_rowCount = buffer.getInt(10);
+    int stringCount = buffer.getInt(14);
+    m_strings = new String[stringCount];
+    m_stringOffsetsPosition = 18;
+    m_stringPoolPosition = m_stringOffsetsPosition + (stringCount + 1) * 4;
+    m_rows = new Datum[m_rowCount];
+
+    /* Find where each known column starts; unknown columns are skipped. */
+    Map<String, Column> columns = new HashMap<>();
+    for (Column column : Column.values())
+    {
+      columns.put(column.key, column);
+    }
+    m_columnPositions = new int[Column.values().length];
+    for (int i = 0; i < m_columnPositions.length; i++)
+    {
+      m_columnPositions[i] = -1;
+    }
+    int position = m_stringPoolPosition + buffer.getInt(m_stringPoolPosition - 4);
+    int columnCount = buffer.getShort(position);
+    position += 2;
+    for (int i = 0; i < columnCount; i++)
+    {
+      int nameLength = buffer.getShort(position);
+      String name = decode(position + 2, nameLength);
+      position += 2 + nameLength;
+      char type = (char) buffer.get(position);
+      int length = buffer.getInt(position + 1);
+      position += 5;
+
+      Column column = columns.get(name);
+      if (column != null)
+      {
+        if (column.type != type || length != m_rowCount * column.width())
+        {
+          throw new IOException("Malformed column " + name);
+        }
+        m_columnPositions[column.ordinal()] = position;
+      }
+      position += length;
+    }
+  }
+
+  /* Property methods */
+
+  /**
+   * Returns the total count of the feed the snapshot was taken from, which
+   * may be larger than the number of rows bundled.
+   */
+  public Integer getTotalCount ()
+  {
+    return m_totalCount;
+  }
+
+  public int getRowCount ()
+  {
+    return m_rowCount;
+  }
+
+  /* Public methods */
+
+  public synchronized Datum getRow (int row)
+  {
+    Datum datum = m_rows[row];
+    if (datum == null)
+    {
+      datum = decodeRow(row);
+      m_rows[row] = datum;
+    }
+    return datum;
+  }
+
+  /**
+   * Returns a read-only view of the rows which decodes them as they are
+   * accessed.
+   */
+  public List<Datum> asList ()
+  {
+    return new RowList();
+  }
+
+  /* Internal methods */
+
+  private Datum decodeRow (int row)
+  {
+    Datum datum = new Datum();
+    datum.setId(getInteger(Column.ID, row));
+    datum.setTitle(getString(Column.TITLE, row));
+    datum.setFpdFlag(getBoolean(Column.FPD_FLAG, row));
+    datum.setOffPercent(getString(Column.OFF_PERCENT, row));
+    datum.setCurrentPrice(getInteger(Column.CURRENT_PRICE, row));
+    datum.setOriginalPrice(getInteger(Column.ORIGINAL_PRICE, row));
+    datum.setImage(getString(Column.IMAGE, row));
+    datum.setCommentsCount(getInteger(Column.COMMENTS_COUNT, row));
+    datum.setAllPostsCount(getInteger(Column.ALL_POSTS_COUNT, row));
+    datum.setCreatedAt(getLong(Column.CREATED_AT, row));
+    datum.setScore(getInteger(Column.SCORE, row));
+    datum.setVoteValue(getInteger(Column.VOTE_VALUE, row));
+    datum.setState(getString(Column.STATE, row));
+    datum.setDescription(getString(Column.DESCRIPTION, row));
+    datum.setShareUrl(getString(Column.SHARE_URL, row));
+    datum.setDealUrl(getString(Column.DEAL_URL, row));
+    datum.setViewCount(getInteger(Column.VIEW_COUNT, row));
+    /* The reason carries no fields, the JSON path yields an empty one too. */
+    datum.setVoteDownReason(new VoteDownReason());
+    datum.setVoteCount(getInteger(Column.VOTE_COUNT, row));
+    datum.setFpdSuggestted(getBoolean(Column.FPD_SUGGESTTED, row));
+    datum.setFrontPageSuggestionsCount(getInteger(Column.FRONT_PAGE_SUGGESTIONS_COUNT, row));
+
+    if (Boolean.TRUE.equals(getBoolean(Column.MERCHANT, row)))
+    {
+      Merchant merchant = new Merchant();
+      merchant.setId(getInteger(Column.MERCHANT_ID, row));
+      merchant.setName(getString(Column.MERCHANT_NAME, row));
+      merchant.setImage(getString(Column.MERCHANT_IMAGE, row));
+      merchant.setPermalink(getString(Column.MERCHANT_PERMALINK, row));
+      merchant.setRecommendation(getInteger(Column.MERCHANT_RECOMMENDATION, row));
+      merchant.setRecommendationFlag(getBoolean(Column.MERCHANT_RECOMMENDATION_FLAG, row));
+      merchant.setAverageRating(getString(Column.MERCHANT_AVERAGE_RATING, row));
+      datum.setMerchant(merchant);
+    }
+
+    if (Boolean.TRUE.equals(getBoolean(Column.USER, row)))
+    {
+      User user = new User();
+      user.setId(getInteger(Column.USER_ID, row));
+      user.setName(getString(Column.USER_NAME, row));
+      user.setImage(getString(Column.USER_IMAGE, row));
+      user.setRank(getString(Column.USER_RANK, row));
+      user.setCurrentDimes(getInteger(Column.USER_CURRENT_DIMES, row));
+      user.setKarma(getInteger(Column.USER_KARMA, row));
+      user.setFpdCount(getInteger(Column.USER_FPD_COUNT, row));
+      datum.setUser(user);
+    }
+    return datum;
+  }
+
+  private Integer getInteger (Column column, int row)
+  {
+    int position = m_columnPositions[column.ordinal()];
+    if (position < 0)
+    {
+      return null;
+    }
+    int value = m_buffer.getInt(position + row * 4);
+    return value == Integer.MIN_VALUE ? null : value;
+  }
+
+  private Long getLong (Column column, int row)
+  {
+    int position = m_columnPositions[column.ordinal()];
+    if (position < 0)
+    {
+      return null;
+    }
+    long value = m_buffer.getLong(position + row * 8);
+    return value == Long.MIN_VALUE ? null : value;
+  }
+
+  private Boolean getBoolean (Column column, int row)
+  {
+    int position = m_columnPositions[column.ordinal()];
+    if (position < 0)
+    {
+      return null;
+    }
+    byte value = m_buffer.get(position + row);
+    return value < 0 ? null : value != 0;
+  }
+
+  private String getString (Column column, int row)
+  {
+    int position = m_columnPositions[column.ordinal()];
+    if (position < 0)
+    {
+      return null;
+    }
+    int index = m_buffer.getInt(position + row * 4);
+    if (index < 0)
+    {
+      return null;
+    }
+    String value = m_strings[index];
+    if (value == null)
+    {
+      int start = m_buffer.getInt(m_stringOffsetsPosition + index * 4);
+      int end = m_buffer.getInt(m_stringOffsetsPosition + index * 4 + 4);
+      value = decode(m_stringPoolPosition + start, end - start);
+      m_strings[index] = value;
+    }
+    return value;
+  }
+
+  private String decode (int position, int length)
+  {
+    byte[] bytes = new byte[length];
+    ByteBuffer source = m_buffer.duplicate();
+    source.position(position);
+    source.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  /* RowList definition */
+
+  private class RowList extends AbstractList<Datum> implements RandomAccess
+  {
+    @Override
+    public Datum get (int index)
+    {
+      return getRow(index);
+    }
+
+    @Override
+    public int size ()
+    {
+      return m_rowCount;
+    }
+  }
+}
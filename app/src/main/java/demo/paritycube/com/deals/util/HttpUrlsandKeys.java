@@ -18,6 +18,8 @@ public class HttpUrlsandKeys {
     public static final String restmobileservice = "/v3/";
     public static final String populardeals = "http://139.162.46.29/v3/deals.json?type=popular&deal_view=true";
     public static final String topdeals = "http://139.162.46.29/v3/deals.json?type=top&deal_view=true";
+    public static final String PARAM_PAGE = "page";
+    public static final String PARAM_PER_PAGE = "per_page";
     public static final String appAuthKey = "0c50c23d1ac0ec18eedee20ea0cdce91ea68a20e9503b2ad77f44dab982034b0";
 
     public static String buildServiceUrl(String service) {
@@ -27,4 +29,11 @@ public class HttpUrlsandKeys {
         return url;
     }
 
+    public static String buildPagedUrl(String feedUrl, int page, int perPage) {
+        Uri.Builder b = Uri.parse(feedUrl).buildUpon();
+        b.appendQueryParameter(PARAM_PAGE, String.valueOf(page));
+        b.appendQueryParameter(PARAM_PER_PAGE, String.valueOf(perPage));
+        return b.build().toString();
+    }
+
 }
@@ -0,0 +1,415 @@
+package demo.paritycube.com.deals.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+import demo.paritycube.com.deals.core.tools.executor.AppExecutors;
+import okio.ByteString;
+
+/**
+ * Typed view of a preferences file with an in-memory mirror. The file is
+ * read on the IO pool as soon as the store is first requested; a read made
+ * before that load finished waits for it, so early reads belong on a
+ * background thread. After the load every read is a map lookup.
+ *
+ * Writes are grouped in a {@link Transaction}: the mirror is updated at once
+ * and the whole group goes to disk with a single apply. Writes never wait for
+ * the load; changes made before it finished are kept aside, win over what
+ * the load reads for their keys, and go to disk once it is over.
+ *
+ * String lists are stored as a length prefixed binary encoding in Base64,
+ * decoded once and kept decoded in the mirror; {@link #getString} still
+ * returns their stored form. Lists packed with the separator of
+ * {@link PreferenceUtil} are still read.
+ */
+public class PreferenceStore
+{
+  /* Properties */
+
+  private static final String LIST_PREFIX = "list:";
+  private static final String LEGACY_SEPARATOR = "!@#;";
+
+  private static final Map<String, PreferenceStore> sm_stores = new HashMap<>();
+
+  private final Map<String, Object> m_values = new ConcurrentHashMap<>();
+  private final CountDownLatch m_loaded = new CountDownLatch(1);
+  private final Map<String, Object> m_pending = new LinkedHashMap<>();
+  private SharedPreferences m_prefs;
+
+  /* Source definition */
+
+  /**
+   * Opens the preferences file, called once on the load executor.
+   */
+  interface Source
+  {
+    SharedPreferences open ();
+  }
+
+  /* Creational */
+
+  /**
+   * Returns the store of the named preferences file, starting its load in
+   * the background the first time.
+   */
+  public static synchronized PreferenceStore getInstance (Context context, String name)
+  {
+    PreferenceStore store = sm_stores.get(name);
+    if (store == null)
+    {
+      final Context appContext = context.getApplicationContext();
+      store = new PreferenceStore();
+      store.load(AppExecutors.io(), () -> appContext.getSharedPreferences(name, Context.MODE_PRIVATE));
+      sm_stores.put(name, store);
+    }
+    return store;
+  }
+
+  PreferenceStore ()
+  {
+  }
+
+  /* Property methods */
+
+  public boolean isLoaded ()
+  {
+    return m_loaded.getCount() == 0;
+  }
+
+  /* Public methods */
+
+  /**
+   * Returns the string stored for the key. For a string list this is its
+   * stored encoding, whether or not the list was decoded already.
+   */
+  public String getString (String key, String defValue)
+  {
+    Object value = get(key);
+    if (value instanceof List)
+    {
+      return encodeList((List<?>) value);
+    }
+    return value instanceof String ? (String) value : defValue;
+  }
+
+  public boolean getBoolean (String key, boolean defValue)
+  {
+    Object value = get(key);
+    return value instanceof Boolean ? (Boolean) value : defValue;
+  }
+
+  public int getInt (String key, int defValue)
+  {
+    Object value = get(key);
+    return value instanceof Integer ? (Integer) value : defValue;
+  }
+
+  public long getLong (String key, long defValue)
+  {
+    Object value = get(key);
+    return value instanceof Long ? (Long) value : defValue;
+  }
+
+  /**
+   * Returns the list stored for the key, empty when there is none. The
+   * returned list cannot be modified.
+   */
+  @SuppressWarnings("unchecked")
+  public List<String> getStringList (String key)
+  {
+    Object value = get(key);
+    if (value instanceof List)
+    {
+      return (List<String>) value;
+    }
+    if (!(value instanceof String))
+    {
+      return Collections.emptyList();
+    }
+
+    List<String> list = decodeList((String) value);
+    m_values.replace(key, value, list);
+    return list;
+  }
+
+  /**
+   * Starts a group of changes, written together by
+   * {@link Transaction#apply()}.
+   */
+  public Transaction edit ()
+  {
+    return new Transaction();
+  }
+
+  /* Internal methods */
+
+  /**
+   * Reads the file on the executor into the mirror, skipping the keys
+   * changed meanwhile, then writes those changes. Readers are released even
+   * when the file cannot be read; the store then runs from memory and keeps
+   * its changes aside.
+   */
+  void load (Executor executor, final Source source)
+  {
+    executor.execute(() -> {
+      try
+      {
+        SharedPreferences prefs = source.open();
+        Map<String, ?> stored = prefs.getAll();
+        synchronized (this)
+        {
+          for (Map.Entry<String, ?> entry : stored.entrySet())
+          {
+            if (entry.getValue() != null && !m_pending.containsKey(entry.getKey()))
+            {
+              m_values.put(entry.getKey(), entry.getValue());
+            }
+          }
+          m_prefs = prefs;
+          if (!m_pending.isEmpty())
+          {
+            write(m_pending);
+            m_pending.clear();
+          }
+        }
+      }
+      catch (RuntimeException ex)
+      {
+        ex.printStackTrace();
+      }
+      finally
+      {
+        m_loaded.countDown();
+      }
+    });
+  }
+
+  private void awaitLoaded ()
+  {
+    boolean interrupted = false;
+    while (true)
+    {
+      try
+      {
+        m_loaded.await();
+        break;
+      }
+      catch (InterruptedException ex)
+      {
+        interrupted = true;
+      }
+    }
+    if (interrupted)
+    {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private Object get (String key)
+  {
+    awaitLoaded();
+    return m_values.get(key);
+  }
+
+  private synchronized void apply (Map<String, Object> changes)
+  {
+    for (Map.Entry<String, Object> change : changes.entrySet())
+    {
+      if (change.getValue() == null)
+      {
+        m_values.remove(change.getKey());
+      }
+      else
+      {
+        m_values.put(change.getKey(), change.getValue());
+      }
+    }
+    if (m_prefs == null)
+    {
+      m_pending.putAll(changes);
+    }
+    else
+    {
+      write(changes);
+    }
+  }
+
+  private void write (Map<String, Object> changes)
+  {
+    SharedPreferences.Editor editor = m_prefs.edit();
+    for (Map.Entry<String, Object> change : changes.entrySet())
+    {
+      String key = change.getKey();
+      Object value = change.getValue();
+      if (value == null)
+      {
+        editor.remove(key);
+      }
+      else if (value instanceof List)
+      {
+        editor.putString(key, encodeList((List<?>) value));
+      }
+      else if (value instanceof String)
+      {
+        editor.putString(key, (String) value);
+      }
+      else if (value instanceof Boolean)
+      {
+        editor.putBoolean(key, (Boolean) value);
+      }
+      else if (value instanceof Integer)
+      {
+        editor.putInt(key, (Integer) value);
+      }
+      else
+      {
+        editor.putLong(key, (Long) value);
+      }
+    }
+    editor.apply();
+  }
+
+  static String encodeList (List<?> values)
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    try
+    {
+      output.writeInt(values.size());
+      for (Object value : values)
+      {
+        output.writeUTF(value != null ? value.toString() : "");
+      }
+      output.flush();
+    }
+    catch (IOException ex)
+    {
+      /* Cannot happen writing to memory, but writeUTF rejects very long strings. */
+      throw new IllegalArgumentException(ex);
+    }
+    return LIST_PREFIX + ByteString.of(bytes.toByteArray()).base64();
+  }
+
+  static List<String> decodeList (String value)
+  {
+    if (value.isEmpty())
+    {
+      return Collections.emptyList();
+    }
+
+    List<String> list = new ArrayList<>();
+    if (value.startsWith(LIST_PREFIX))
+    {
+      ByteString bytes = ByteString.decodeBase64(value.substring(LIST_PREFIX.length()));
+      if (bytes == null)
+      {
+        return Collections.emptyList();
+      }
+      DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+      try
+      {
+        for (int count = input.readInt(); count > 0; count--)
+        {
+          list.add(input.readUTF());
+        }
+      }
+      catch (IOException ex)
+      {
+        ex.printStackTrace();
+      }
+    }
+    else
+    {
+      int start = 0;
+      int end;
+      while ((end = value.indexOf(LEGACY_SEPARATOR, start)) != -1)
+      {
+        list.add(value.substring(start, end));
+        start = end + LEGACY_SEPARATOR.length();
+      }
+      list.add(value.substring(start));
+
+      /* Like the String.split of PreferenceUtil, trailing empty entries are dropped. */
+      while (!list.isEmpty() && list.get(list.size() - 1).isEmpty())
+      {
+        list.remove(list.size() - 1);
+      }
+    }
+    return Collections.unmodifiableList(list);
+  }
+
+  /* Transaction definition */
+
+  /**
+   * A group of changes to the store. A null value removes the key.
+   */
+  public class Transaction
+  {
+    private final Map<String, Object> m_changes = new HashMap<>();
+
+    private Transaction ()
+    {
+    }
+
+    public Transaction putString (String key, String value)
+    {
+      m_changes.put(key, value);
+      return this;
+    }
+
+    public Transaction putBoolean (String key, boolean value)
+    {
+      m_changes.put(key, value);
+      return this;
+    }
+
+    public Transaction putInt (String key, int value)
+    {
+      m_changes.put(key, value);
+      return this;
+    }
+
+    public Transaction putLong (String key, long value)
+    {
+      m_changes.put(key, value);
+      return this;
+    }
+
+    public Transaction putStringList (String key, List<String> values)
+    {
+      m_changes.put(key, values != null
+          ? Collections.unmodifiableList(new ArrayList<>(values))
+          : null);
+      return this;
+    }
+
+    public Transaction remove (String key)
+    {
+      m_changes.put(key, null);
+      return this;
+    }
+
+    /**
+     * Updates the mirror and writes every change with a single apply.
+     */
+    public void apply ()
+    {
+      PreferenceStore.this.apply(m_changes);
+    }
+  }
+}
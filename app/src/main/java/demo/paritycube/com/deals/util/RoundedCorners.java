@@ -0,0 +1,53 @@
+package demo.paritycube.com.deals.util;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.Shader;
+
+/**
+ * Created by Sandeep Devhare @APAR on 6/24/2017.
+ */
+// draws bitmaps with rounded corners, for the thumbnails decoded by ThumbnailRequestHandler
+public final class RoundedCorners {
+    /* Drawing runs on Picasso's worker threads, each keeps its own drawing objects. */
+    private static final ThreadLocal<DrawingState> sm_drawingState = new ThreadLocal<DrawingState>() {
+        @Override
+        protected DrawingState initialValue() {
+            return new DrawingState();
+        }
+    };
+
+    private RoundedCorners() {
+    }
+
+    /**
+     * Draws the source, scaled to the size of the output, into the output
+     * with its corners rounded. radius is the corner radius and margin the
+     * border left around the image, both in pixels.
+     */
+    public static void draw(Bitmap source, Bitmap output, int radius, int margin) {
+        DrawingState state = sm_drawingState.get();
+        BitmapShader shader = new BitmapShader(source, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+        state.matrix.setScale(output.getWidth() / (float) source.getWidth(),
+                output.getHeight() / (float) source.getHeight());
+        shader.setLocalMatrix(state.matrix);
+        state.paint.setShader(shader);
+        state.rect.set(margin, margin, output.getWidth() - margin, output.getHeight() - margin);
+
+        state.canvas.setBitmap(output);
+        state.canvas.drawRoundRect(state.rect, radius, radius, state.paint);
+        state.canvas.setBitmap(null);
+        state.paint.setShader(null);
+    }
+
+    private static class DrawingState {
+        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        final Canvas canvas = new Canvas();
+        final Matrix matrix = new Matrix();
+        final RectF rect = new RectF();
+    }
+}
@@ -1,17 +1,26 @@
 package demo.paritycube.com.deals.util;
 
 import android.content.Context;
+import android.databinding.BindingAdapter;
 import android.graphics.Typeface;
+import android.widget.TextView;
 
-import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
 
+import demo.paritycube.com.deals.BuildConfig;
 import demo.paritycube.com.deals.R;
+import demo.paritycube.com.deals.core.tools.executor.AppExecutors;
+import demo.paritycube.com.deals.core.tools.executor.TaskHandle;
 
 
 public class TypefaceFactory
@@ -28,12 +37,29 @@ public class TypefaceFactory
   public static final int RobotoRegular = 7;
   public static final int RobotoThin = 8;
 
+  /**
+   * The typefaces used across the layouts, preloaded at startup. Layouts
+   * apply faces through {@code app:typefaceId}, so another face is loaded
+   * in the background on its first bind.
+   */
+  public static final int[] COMMON_TYPEFACES = {
+    RobotoRegular,
+    RobotoMedium,
+    RobotoBold,
+  };
+
+  private static final String CHECKSUM_SUFFIX = ".crc";
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final int BUFFER_SIZE = 8 * 1024;
+
   /* Static properties */
 
-  private static Map<String, Typeface> sm_typefaceCache
-      = new HashMap<String, Typeface>();
-  private static Map<String, String> sm_typefacePathCache
-      = new HashMap<String, String>();
+  private static final Map<String, Typeface> sm_typefaceCache
+      = new ConcurrentHashMap<String, Typeface>();
+  private static final Map<String, String> sm_typefacePathCache
+      = new ConcurrentHashMap<String, String>();
+  private static final ConcurrentHashMap<String, Object> sm_locks
+      = new ConcurrentHashMap<String, Object>();
 
   private static int[] RawRes = {
     R.raw.font_roboto_bold,
@@ -63,6 +89,85 @@ public class TypefaceFactory
     return getTypefaceForRawResId (context, RawRes[typefaceID]);
   }
 
+  /**
+   * Returns the typeFace if it was loaded already, or null; never touches
+   * the disk.
+   *
+   * @param context
+   *          the Context reference the TypeFace was created with
+   * @param typefaceID
+   *          the integer constant/ID of the typeFace
+   * @return the loaded typeFace, or null.
+   */
+  public static Typeface getLoadedTypeFaceForId (Context context, int typefaceID)
+  {
+    return sm_typefaceCache.get(context.getResources().getResourceEntryName(RawRes[typefaceID]));
+  }
+
+  /**
+   * Loads a typeFace on the IO pool and delivers it on the main thread.
+   *
+   * @param context
+   *          the Context reference to create the TypeFace with
+   * @param typefaceID
+   *          the integer constant/ID of the typeFace
+   * @param callback
+   *          receives the typeFace, or null when it could not be loaded
+   * @return the handle to cancel the delivery with.
+   */
+  public static TaskHandle getTypeFaceForIdAsync (Context context, final int typefaceID,
+      AppExecutors.Callback<Typeface> callback)
+  {
+    final Context appContext = context.getApplicationContext();
+    return AppExecutors.submit(AppExecutors.io(),
+        () -> getTypeFaceForId(appContext, typefaceID), callback);
+  }
+
+  /**
+   * Binding adapter behind {@code app:typefaceId}. A loaded face is applied
+   * right away; otherwise the face is loaded in the background and applied
+   * once ready, so a bind on the main thread never waits for the font to be
+   * extracted or checked.
+   *
+   * @param view
+   *          the TextView to apply the TypeFace to
+   * @param typefaceID
+   *          the integer constant/ID of the typeFace
+   */
+  @BindingAdapter("typefaceId")
+  public static void setTypefaceId (final TextView view, int typefaceID)
+  {
+    Typeface typeface = getLoadedTypeFaceForId(view.getContext(), typefaceID);
+    if (typeface != null)
+    {
+      view.setTypeface(typeface);
+      return;
+    }
+    getTypeFaceForIdAsync(view.getContext(), typefaceID, loaded -> {
+      if (loaded != null)
+      {
+        view.setTypeface(loaded);
+      }
+    });
+  }
+
+  /**
+   * Loads the typefaces on the calling thread, meant for warm-up code
+   * already running in the background.
+   *
+   * @param context
+   *          the Context reference to create the TypeFaces with
+   * @param typefaceIDs
+   *          the integer constants/IDs of the typeFaces
+   */
+  public static void preload (Context context, int... typefaceIDs)
+  {
+    for (int typefaceID : typefaceIDs)
+    {
+      getTypeFaceForId(context, typefaceID);
+    }
+  }
+
   /**
    * Returns the typeFace file path from the pre-defined constant.
    *
@@ -90,7 +195,10 @@ public class TypefaceFactory
   }
 
   /**
-   * Returns a typeface from a raw resource ID.
+   * Returns a typeface from a raw resource ID. The first caller for a font
+   * extracts it while concurrent callers for the same font wait for it.
+   * When the font cannot be extracted or read, {@link Typeface#DEFAULT} is
+   * returned and not cached, so a later call tries again.
    *
    * @param context
    *          the Context reference to create the TypeFace with
@@ -107,49 +215,186 @@ public class TypefaceFactory
     String key = context.getResources().getResourceEntryName(typefaceRawResID);
 
     Typeface typeface = typefaceCache.get(key);
-    if (typeface == null)
+    if (typeface != null)
+    {
+      return typeface;
+    }
+
+    synchronized (getLock(key))
     {
-      File file = new File(getDirectory(context) + "/rawfont-" + key + ".ttf");
-      if (!file.exists())
+      typeface = typefaceCache.get(key);
+      if (typeface == null)
       {
-        InputStream is = null;
-        BufferedOutputStream out = null;
-        try
+        File file = new File(getDirectory(context) + "/rawfont-" + key + ".ttf");
+        if (!isValid(file) && !extract(context, typefaceRawResID, file))
         {
-          is = context.getResources().openRawResource(typefaceRawResID);
-          out = new BufferedOutputStream(new FileOutputStream(file));
-
-          int len = 0;
-          byte[] buffer = new byte[is.available()];
-          while((len = is.read(buffer)) > 0)
-          {
-            out.write(buffer, 0, len);
-          }
+          return Typeface.DEFAULT;
         }
-        catch (Exception e)
+
+        try
         {
-          e.printStackTrace();
+          typeface = Typeface.createFromFile(file);
         }
-        finally
+        catch (RuntimeException e)
         {
-          try
-          {
-            is.close();
-            out.close();
-          }
-          catch (IOException e)
-          {
-            e.printStackTrace();
-          }
+          e.printStackTrace();
+          return Typeface.DEFAULT;
         }
+
+        typefacePathCache.put(key, file.getPath());
+        typefaceCache.put(key, typeface);
+      }
+    }
+    return typeface;
+  }
+
+  /* Internal methods */
+
+  private static Object getLock (String key)
+  {
+    Object lock = sm_locks.get(key);
+    if (lock == null)
+    {
+      Object newLock = new Object();
+      lock = sm_locks.putIfAbsent(key, newLock);
+      if (lock == null)
+      {
+        lock = newLock;
       }
+    }
+    return lock;
+  }
 
-      typeface = Typeface.createFromFile(file);
+  /**
+   * Copies the raw font next to the target, then renames it into place, so
+   * the target is either missing or complete. A checksum file recording the
+   * app version, length and CRC32 of the copy is written last. Returns
+   * false when the font could not be copied.
+   */
+  private static boolean extract (Context context, int typefaceRawResID, File file)
+  {
+    File temp = new File(file.getPath() + TEMP_SUFFIX);
+    CRC32 crc = new CRC32();
+    long length = 0;
+    InputStream is = null;
+    FileOutputStream out = null;
+    try
+    {
+      is = context.getResources().openRawResource(typefaceRawResID);
+      out = new FileOutputStream(temp);
 
-      typefaceCache.put(key, typeface);
-      typefacePathCache.put(key, file.getPath());
+      int len;
+      byte[] buffer = new byte[BUFFER_SIZE];
+      while((len = is.read(buffer)) > 0)
+      {
+        out.write(buffer, 0, len);
+        crc.update(buffer, 0, len);
+        length += len;
+      }
+      out.getFD().sync();
+      out.close();
+      out = null;
+
+      if (!temp.renameTo(file))
+      {
+        throw new IOException("Cannot rename " + temp + " to " + file);
+      }
+      writeChecksum(file, length, crc.getValue());
+      return true;
+    }
+    catch (IOException e)
+    {
+      e.printStackTrace();
+      return false;
+    }
+    finally
+    {
+      close(is);
+      close(out);
+      temp.delete();
+    }
+  }
+
+  /**
+   * Returns true when the extracted font is complete: its checksum file was
+   * written by this app version and matches the font's length and CRC32.
+   */
+  private static boolean isValid (File file)
+  {
+    File checksumFile = new File(file.getPath() + CHECKSUM_SUFFIX);
+    if (!file.exists() || !checksumFile.exists())
+    {
+      return false;
+    }
+
+    BufferedReader reader = null;
+    InputStream is = null;
+    try
+    {
+      reader = new BufferedReader(new FileReader(checksumFile));
+      String[] fields = String.valueOf(reader.readLine()).split(" ");
+      if (fields.length != 3
+          || Integer.parseInt(fields[0]) != BuildConfig.VERSION_CODE
+          || Long.parseLong(fields[1]) != file.length())
+      {
+        return false;
+      }
+
+      CRC32 crc = new CRC32();
+      is = new FileInputStream(file);
+      int len;
+      byte[] buffer = new byte[BUFFER_SIZE];
+      while ((len = is.read(buffer)) > 0)
+      {
+        crc.update(buffer, 0, len);
+      }
+      return crc.getValue() == Long.parseLong(fields[2]);
+    }
+    catch (IOException | NumberFormatException e)
+    {
+      return false;
+    }
+    finally
+    {
+      close(reader);
+      close(is);
+    }
+  }
+
+  private static void writeChecksum (File file, long length, long crc) throws IOException
+  {
+    File checksumFile = new File(file.getPath() + CHECKSUM_SUFFIX);
+    File temp = new File(checksumFile.getPath() + TEMP_SUFFIX);
+    FileOutputStream out = new FileOutputStream(temp);
+    try
+    {
+      out.write((BuildConfig.VERSION_CODE + " " + length + " " + crc).getBytes("UTF-8"));
+      out.getFD().sync();
+    }
+    finally
+    {
+      out.close();
+    }
+    if (!temp.renameTo(checksumFile))
+    {
+      temp.delete();
+      throw new IOException("Cannot rename " + temp + " to " + checksumFile);
+    }
+  }
+
+  private static void close (Closeable closeable)
+  {
+    if (closeable != null)
+    {
+      try
+      {
+        closeable.close();
+      }
+      catch (IOException e)
+      {
+        e.printStackTrace();
+      }
     }
-    return typeface;
   }
 
   /**
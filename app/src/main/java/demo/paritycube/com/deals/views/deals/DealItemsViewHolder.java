@@ -2,16 +2,18 @@ package demo.paritycube.com.deals.views.deals;
 
 import android.content.Context;
 import android.content.res.Resources;
+import android.net.Uri;
 import android.support.v7.widget.RecyclerView;
-import android.util.DisplayMetrics;
 
 import com.squareup.picasso.Picasso;
 
 import demo.paritycube.com.deals.R;
+import demo.paritycube.com.deals.core.tools.image.ImagePipeline;
+import demo.paritycube.com.deals.core.tools.image.ThumbnailRequestHandler;
 import demo.paritycube.com.deals.databinding.DealItemBinding;
 import demo.paritycube.com.deals.pojo.Datum;
-import demo.paritycube.com.deals.util.RoundedTransformation;
 import demo.paritycube.com.deals.util.Validation;
+import demo.paritycube.com.deals.views.deals.adapter.DealsDiffCallback;
 
 /**
  * Created by Sandeep Devhare @APAR on 6/22/2017.
@@ -19,14 +21,20 @@ import demo.paritycube.com.deals.util.Validation;
 
 public class DealItemsViewHolder extends RecyclerView.ViewHolder {
     /* Properties */
+    private static final int THUMBNAIL_RADIUS = 200;
+    private static final int THUMBNAIL_MARGIN = 0;
     private Datum m_data;
     private DealItemBinding m_binding;
     private String descriptioToText;
+    private final int m_imageSize;
+    private final Object m_imageTag;
 
     /* Initializations */
-    public DealItemsViewHolder(DealItemBinding binding, DealsClickListener clickListener) {
+    public DealItemsViewHolder(DealItemBinding binding, DealsClickListener clickListener, Object imageTag) {
         super(binding.getRoot());
+        m_imageTag = imageTag;
         m_binding = binding;
+        m_imageSize = ImagePipeline.getThumbnailSize(itemView.getContext());
 
         itemView.setOnClickListener(v -> clickListener.onDealClicked(getAdapterPosition(), m_data));
     }
@@ -37,23 +45,21 @@ public class DealItemsViewHolder extends RecyclerView.ViewHolder {
         m_binding.dealTitle.setText(deal.getTitle());
        // descriptioToText = Html.fromHtml(deal.getDescription()).toString();
         m_binding.dealDescription.setText(deal.getDescription());
+        bindStats(deal);
         if ( m_binding.imageView != null)
         {
 
-            if (Validation.isEmpty(deal.getImage()) || Validation.isNotNull(deal.getImage()))
+            if (Validation.isEmpty(deal.getImage()))
             {
+                Picasso.with(m_binding.imageView.getContext()).cancelRequest(m_binding.imageView);
                 m_binding.imageView.setImageResource(R.drawable.placeholder);
             }else {
-                Context context =  m_binding.imageView.getContext();
-                DisplayMetrics metrics = context.getResources().getDisplayMetrics();
-                int size = (int) (metrics.density * 55);
-                Picasso.with( m_binding.imageView.getContext())
-                        .load(deal.getImage())
-                        .resize(size, size)
-                        .transform(new RoundedTransformation(200, 0))
-                        .fit()
-                        .onlyScaleDown()
-                        .centerInside()
+                /* Decoded, scaled and rounded in one pass into pooled bitmaps,
+                 * the URI keeps the memory cache key stable across binds. The
+                 * tag lets the adapter pause loads while the list flings. */
+                Picasso.with(m_binding.imageView.getContext())
+                        .load(createThumbnailUri(deal.getImage(), m_imageSize))
+                        .tag(m_imageTag)
                         .placeholder(R.drawable.placeholder)
                         .into(m_binding.imageView);
             }
@@ -64,4 +70,43 @@ public class DealItemsViewHolder extends RecyclerView.ViewHolder {
 
 
     }
+
+    /**
+     * Cancels the image load of a row that left the screen before its image
+     * arrived, so it does not take a worker from the visible rows.
+     */
+    public void onRecycled() {
+        if (m_binding.imageView != null) {
+            Picasso.with(m_binding.imageView.getContext()).cancelRequest(m_binding.imageView);
+        }
+    }
+
+    /**
+     * Returns the URI of the thumbnail shown for the image URL, the one to
+     * prefetch so that binding the row later hits the memory cache.
+     */
+    public static Uri createThumbnailUri(String image, int size) {
+        return ThumbnailRequestHandler.createUri(image, size, THUMBNAIL_RADIUS, THUMBNAIL_MARGIN);
+    }
+
+    /**
+     * Rebinds only the parts of the row named by the
+     * {@link DealsDiffCallback} payload flags, leaving the image untouched.
+     */
+    public void onBindPartial(Datum deal, int payloadFlags) {
+        m_data = deal;
+        if ((payloadFlags & DealsDiffCallback.PAYLOAD_TEXT) != 0) {
+            m_binding.dealTitle.setText(deal.getTitle());
+            m_binding.dealDescription.setText(deal.getDescription());
+        }
+        if ((payloadFlags & DealsDiffCallback.PAYLOAD_STATS) != 0) {
+            bindStats(deal);
+        }
+    }
+
+    private void bindStats(Datum deal) {
+        m_binding.dealStats.setText(itemView.getResources().getString(R.string.deal_stats,
+                deal.getVoteCount() != null ? deal.getVoteCount() : 0,
+                deal.getScore() != null ? deal.getScore() : 0));
+    }
 }
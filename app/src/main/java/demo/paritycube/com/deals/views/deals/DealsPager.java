@@ -0,0 +1,272 @@
+package demo.paritycube.com.deals.views.deals;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+import com.android.volley.Response;
+import com.android.volley.VolleyError;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import demo.paritycube.com.deals.ParityApplication;
+import demo.paritycube.com.deals.core.tools.http.GsonRequest;
+import demo.paritycube.com.deals.core.tools.http.HttpValidatorStore;
+import demo.paritycube.com.deals.core.tools.http.RequestScheduler;
+import demo.paritycube.com.deals.core.tools.http.RequestScope;
+import demo.paritycube.com.deals.db.DealsRepository;
+import demo.paritycube.com.deals.pojo.Datum;
+import demo.paritycube.com.deals.pojo.Deals;
+import demo.paritycube.com.deals.pojo.TopDeals;
+import demo.paritycube.com.deals.util.HttpUrlsandKeys;
+
+/**
+ * Loads a deal feed page by page as the list is scrolled. Once a page has been
+ * handed to the listener the following page is prefetched in the background,
+ * so reaching the end of the list usually appends an already parsed page
+ * without waiting on the network.
+ * <p>
+ * Pages are requested in a {@link RequestScope}; closing it cancels them, so
+ * pages are only written to the {@link DealsRepository} and handed to the
+ * listener while the scope is active. The HTTP validators of the first page
+ * are recorded right after it is written, so a later 304 always vouches for
+ * the rows actually stored; a first page that is dropped leaves none behind.
+ */
+public class DealsPager extends RecyclerView.OnScrollListener {
+    /* Properties */
+    public static final int PAGE_SIZE = 20;
+    private static final int PREFETCH_DISTANCE = 5;
+
+    private final String m_feedUrl;
+    private final RequestScope m_scope;
+    private final DealsRepository m_repository;
+    private final PageListener m_listener;
+    private final Response.ErrorListener m_errorListener;
+    private int m_generation;
+    private int m_lastPage;
+    private int m_loadedCount;
+    private int m_totalCount = -1;
+    private boolean m_loading;
+    private boolean m_exhausted;
+    private boolean m_waitingForNext;
+    private List<Datum> m_prefetched;
+    private int m_cachedCount;
+    private GsonRequest<TopDeals> m_pageRequest;
+
+    public interface PageListener {
+        void onPageLoaded(int page, List<Datum> deals, int totalCount);
+
+        /**
+         * The server confirmed that the cached first page is still current;
+         * paging continues after the cached rows.
+         */
+        void onFeedNotModified();
+    }
+
+    /* Initializations */
+    public DealsPager(String feedUrl, RequestScope scope, DealsRepository repository,
+                      PageListener listener, Response.ErrorListener errorListener) {
+        m_feedUrl = feedUrl;
+        m_scope = scope;
+        m_repository = repository;
+        m_listener = listener;
+        m_errorListener = errorListener;
+    }
+
+    /**
+     * Drops any loaded state and starts over from the first page.
+     */
+    public void loadFirstPage() {
+        loadFirstPage(0);
+    }
+
+    /**
+     * Same as {@link #loadFirstPage()}, but when {@code cachedCount} rows of
+     * the feed are already shown the first page is requested conditionally,
+     * so an unchanged feed costs a 304 instead of a download and a parse.
+     */
+    public void loadFirstPage(int cachedCount) {
+        m_cachedCount = cachedCount;
+        m_generation++;
+        m_lastPage = 0;
+        m_loadedCount = 0;
+        m_totalCount = -1;
+        m_exhausted = false;
+        m_prefetched = null;
+        m_waitingForNext = true;
+        request(1);
+    }
+
+    /**
+     * Continues paging after rows that are already shown, e.g. a fresh cached
+     * feed, without reloading them. A partial last page means the feed was
+     * exhausted when it was cached.
+     */
+    public void resumeAfter(int loadedCount) {
+        m_generation++;
+        m_lastPage = (loadedCount + PAGE_SIZE - 1) / PAGE_SIZE;
+        m_loadedCount = loadedCount;
+        m_totalCount = -1;
+        m_exhausted = loadedCount % PAGE_SIZE != 0;
+        m_prefetched = null;
+        m_waitingForNext = false;
+        m_loading = false;
+        prefetch();
+    }
+
+    public void loadNextPage() {
+        if (!hasMore()) {
+            return;
+        }
+        if (m_prefetched != null) {
+            List<Datum> page = m_prefetched;
+            m_prefetched = null;
+            deliver(m_lastPage + 1, page);
+            prefetch();
+        } else if (!m_waitingForNext) {
+            m_waitingForNext = true;
+            if (!m_loading) {
+                request(m_lastPage + 1);
+            } else if (m_pageRequest != null) {
+                /* The user caught up with a prefetch that is still queued. */
+                ParityApplication.getInstance().getRequestScheduler()
+                        .promote(m_pageRequest, RequestScheduler.RequestClass.VISIBLE_FEED);
+            }
+        }
+    }
+
+    public boolean hasMore() {
+        return m_prefetched != null
+                || (!m_exhausted && (m_totalCount < 0 || m_loadedCount < m_totalCount));
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        if (dy <= 0 || m_lastPage == 0) {
+            return;
+        }
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (layoutManager instanceof LinearLayoutManager) {
+            int lastVisible = ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+            if (lastVisible >= layoutManager.getItemCount() - PREFETCH_DISTANCE) {
+                loadNextPage();
+            }
+        }
+    }
+
+    /* Internal methods */
+
+    private void request(int page) {
+        final int generation = m_generation;
+        m_loading = true;
+        String url = HttpUrlsandKeys.buildPagedUrl(m_feedUrl, page, PAGE_SIZE);
+        GsonRequest<TopDeals> pageRequest = new GsonRequest<>(url, TopDeals.class,
+                (response, headers) -> {
+                    if (generation == m_generation) {
+                        onPageResponse(page, url, response, headers);
+                    } else if (page == 1) {
+                        forgetValidators(url);
+                    }
+                },
+                error -> {
+                    if (generation == m_generation) {
+                        onPageError(error);
+                    }
+                });
+        if (page == 1) {
+            HttpValidatorStore validatorStore = getValidatorStore();
+            if (m_cachedCount == 0) {
+                /* Nothing cached to fall back on, a 304 would leave the list empty. */
+                validatorStore.remove(url);
+            }
+            pageRequest.setValidatorStore(validatorStore, () -> {
+                if (generation == m_generation) {
+                    onNotModified();
+                }
+            });
+        }
+        m_pageRequest = pageRequest;
+        m_scope.add(pageRequest, m_waitingForNext
+                ? RequestScheduler.RequestClass.VISIBLE_FEED
+                : RequestScheduler.RequestClass.PREFETCH);
+    }
+
+    private void onPageResponse(int page, String url, TopDeals response, Map<String, String> headers) {
+        m_loading = false;
+        Deals deals = response != null ? response.getDeals() : null;
+        List<Datum> data = deals != null && deals.getData() != null
+                ? deals.getData()
+                : Collections.<Datum>emptyList();
+        if (!m_scope.isActive()) {
+            if (page == 1) {
+                forgetValidators(url);
+            }
+            return;
+        }
+        if (page == 1) {
+            m_repository.save(data, true, () -> getValidatorStore().update(url, headers));
+        } else {
+            m_repository.save(data, false, null);
+        }
+        if (deals != null && deals.getTotalCount() != null) {
+            m_totalCount = deals.getTotalCount();
+        }
+        if (data.size() < PAGE_SIZE) {
+            m_exhausted = true;
+        }
+
+        if (m_waitingForNext) {
+            m_waitingForNext = false;
+            deliver(page, data);
+            prefetch();
+        } else if (!data.isEmpty()) {
+            m_prefetched = data;
+        }
+    }
+
+    private void onNotModified() {
+        m_repository.markFresh();
+        if (!m_scope.isActive()) {
+            return;
+        }
+        resumeAfter(m_cachedCount);
+        m_listener.onFeedNotModified();
+    }
+
+    private void onPageError(VolleyError error) {
+        m_loading = false;
+        if (!m_scope.isActive()) {
+            return;
+        }
+        /* A failed prefetch stays silent, the next scroll simply retries it. */
+        if (m_waitingForNext) {
+            m_waitingForNext = false;
+            m_errorListener.onErrorResponse(error);
+        }
+    }
+
+    /**
+     * Drops the validators of a first page that was not stored, they would
+     * otherwise vouch for older rows.
+     */
+    private void forgetValidators(String url) {
+        getValidatorStore().remove(url);
+    }
+
+    private static HttpValidatorStore getValidatorStore() {
+        return HttpValidatorStore.getInstance(ParityApplication.getInstance());
+    }
+
+    private void deliver(int page, List<Datum> data) {
+        m_lastPage = page;
+        m_loadedCount += data.size();
+        m_listener.onPageLoaded(page, data, m_totalCount);
+    }
+
+    private void prefetch() {
+        if (hasMore() && !m_loading) {
+            request(m_lastPage + 1);
+        }
+    }
+}
@@ -10,48 +10,44 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
-import com.android.volley.Request;
 import com.android.volley.Response;
 import com.android.volley.VolleyError;
-import com.google.gson.Gson;
-
-import org.json.JSONObject;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import demo.paritycube.com.deals.ParityApplication;
 import demo.paritycube.com.deals.R;
 import demo.paritycube.com.deals.core.tools.http.ConnectionHandler;
-import demo.paritycube.com.deals.core.tools.http.CustomRequest;
-import demo.paritycube.com.deals.core.tools.http.JsonSerializer;
 import demo.paritycube.com.deals.core.tools.http.StatusCode;
 import demo.paritycube.com.deals.databinding.PopularDealsFragmentBinding;
-import demo.paritycube.com.deals.db.DBAdapter;
 import demo.paritycube.com.deals.db.DbConstants;
+import demo.paritycube.com.deals.db.DealsRepository;
 import demo.paritycube.com.deals.misc.widgets.MainNavigationItemFragment;
 import demo.paritycube.com.deals.pojo.Datum;
 import demo.paritycube.com.deals.pojo.Deals;
-import demo.paritycube.com.deals.pojo.SeoSetting;
 import demo.paritycube.com.deals.pojo.TopDeals;
 import demo.paritycube.com.deals.util.AlertDialogFactory;
+import demo.paritycube.com.deals.util.AssetJsonLoader;
+import demo.paritycube.com.deals.util.DealSnapshot;
 import demo.paritycube.com.deals.util.HttpUrlsandKeys;
 import demo.paritycube.com.deals.util.Validation;
 import demo.paritycube.com.deals.views.deals.adapter.DealsRecyclerAdapter;
 import demo.paritycube.com.deals.views.menu.MenuViewController;
 
 
-public class PopularDealsFragment extends MainNavigationItemFragment implements Response.ErrorListener, Response.Listener<JSONObject>, ConnectionHandler {
+public class PopularDealsFragment extends MainNavigationItemFragment implements Response.ErrorListener, DealsPager.PageListener, ConnectionHandler {
     /*Properties*/
     public static final String BUNDLE_TYPE = "type";
     private PopularDealsFragmentBinding mBinding;
     private DealsRecyclerAdapter m_adapter;
-    public static final String TAG = TopDealsFragment.class.getSimpleName();
-    Gson gson = new Gson();
-    private String serverRespStr;
+    private DealsPager m_pager;
+    public static final String TAG = PopularDealsFragment.class.getSimpleName();
     private ParityApplication appController;
     Context context;
     private List<Datum> mDataset;
-    private DBAdapter dbAdapter;
+    private DealsRepository m_repository;
     private int sizeOfDeals;
     private int m_type;
     private Boolean isStarted = false;
@@ -99,7 +95,7 @@ public class PopularDealsFragment extends MainNavigationItemFragment implements
     public View onCreateView(LayoutInflater inflater, @Nullable ViewGroup container,
                              @Nullable Bundle savedInstanceState) {
         context = getContext();
-        dbAdapter = new DBAdapter(context);
+        m_repository = new DealsRepository(context, DbConstants.FeedType.POPULAR);
         appController = (ParityApplication) getActivity().getApplicationContext();
         /* Setup view. */
         PopularDealsFragmentBinding binding =
@@ -107,6 +103,8 @@ public class PopularDealsFragment extends MainNavigationItemFragment implements
         mBinding = binding;
         binding.recyclerView.setAdapter(m_adapter = new DealsRecyclerAdapter(context, this::onDealClicked));
         binding.recyclerView.setLayoutManager(new LinearLayoutManager(context));
+        m_pager = new DealsPager(HttpUrlsandKeys.populardeals, getRequestScope(), m_repository, this, this);
+        binding.recyclerView.addOnScrollListener(m_pager);
 
         if (MenuViewController.POPULARDEAL)
         {
@@ -122,68 +120,56 @@ public class PopularDealsFragment extends MainNavigationItemFragment implements
         super.onViewCreated(view, savedInstanceState);
 
     }
+    /**
+     * Renders the cached feed first and only goes to the network when the
+     * cache is missing or older than its TTL; the refreshed pages are merged
+     * into the list by {@link #onPageLoaded(int, List, int)}.
+     */
     private void topDealSync() {
-        if (Validation.isNetworkAvailable(getActivity())) {
-            //String url = HttpUrlsandKeys.buildServiceUrl(HttpUrlsandKeys.topdeals);
-            CustomRequest customRequest = new CustomRequest(Request.Method.GET, HttpUrlsandKeys.populardeals, null, this, this);
-            ParityApplication.getInstance().addToRequestQueue(customRequest, TAG);
-
-        } else {
-            Runnable runnable = () -> {
-                try {
-                    /*check offline data available or not*/
-                    dbAdapter.open();
-                    if (dbAdapter.isDataExistInDB(DbConstants.Tables.POPULAR_DEALS)){
-                       /*read available data from db*/
-                        mDataset = appController.getListOfPopularDeals();
-                        if (mDataset!=null)
-                        {
-                            mBinding.progressBar.setVisibility(View.GONE);
-                            switch (200) {
-                                case StatusCode.CODE_OK:
-                                    setData(mDataset);
-                                    break;
-                                default:
-                                    showErrorMessage(StatusCode.CODE_ERROR, "Popular deals data not available.");
-                                    break;
-                            }
-                        }
-                    }
-
-                    dbAdapter.close();
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-
-            };
-            runInUI(runnable);
+        runInBackground(m_repository::readCached, this::onCachedDeals);
+    }
 
-        }if (mDataset==null){
-                       /*get data from assets*/
-            PopularDealsFragment.this.getOfflineData();
-            setData(mDataset);
+    private void onCachedDeals(DealsRepository.CachedFeed feed) {
+        List<Datum> cached = feed != null ? feed.getDeals() : Collections.<Datum>emptyList();
+        boolean fresh = feed != null && feed.isFresh();
+        boolean online = Validation.isNetworkAvailable(getActivity());
+        if (!cached.isEmpty()) {
+            mBinding.progressBar.setVisibility(View.GONE);
+            setData(cached);
+        }
+        if (online && !fresh) {
+            m_pager.loadFirstPage(cached.size());
+        } else if (online) {
+            m_pager.resumeAfter(cached.size());
+        } else if (cached.isEmpty()) {
+            /*get data from assets*/
+            final Context appContext = context.getApplicationContext();
+            runInBackground(() -> getOfflineData(appContext), list -> {
+                mBinding.progressBar.setVisibility(View.GONE);
+                setData(list);
+            });
         }
     }
+
     private void setData(List<Datum> list) {
         mDataset = list;
         m_adapter.updateDataSet(mDataset);
 
     }
     /* this is optional, just to show data if its not loaded by both channel 1. online 2. offline*/
-    private int getOfflineData() {
-        String json = ParityApplication.loadJsonData(context, "populardealsresponse.json");
-        // Type collectType = new TypeToken<List<TopDeals>>(){}.getType();
-        final TopDeals topDealsAre = JsonSerializer.serialize(json, TopDeals.class);
-        final Deals dealsiS = topDealsAre.getDeals();
-        final List<Datum> dataIs = dealsiS.getData();
-        if (Validation.isNotNull(dealsiS.getData())) {
-            int sizeIs = dealsiS.getData().size();
-            for (int i = 0; i < sizeIs; i++) {
-                mDataset = dealsiS.getData();
-            }
-
+    private static List<Datum> getOfflineData(Context context) {
+        /*Prefer the binary snapshot generated at build time, the JSON asset is the fallback*/
+        final DealSnapshot snapshot = DealSnapshot.open(context, "populardealsresponse.pcds");
+        if (snapshot != null) {
+            /* Decode every row here, off the main thread, the adapter copies what it gets */
+            return snapshot.getRowCount() > 0 ? new ArrayList<>(snapshot.asList()) : null;
+        }
+        final TopDeals topDealsAre = AssetJsonLoader.load(context, "populardealsresponse.json", TopDeals.class);
+        final Deals dealsiS = topDealsAre != null ? topDealsAre.getDeals() : null;
+        if (dealsiS != null && Validation.isNotNull(dealsiS.getData())) {
+            return dealsiS.getData();
         }
-        return StatusCode.CODE_OK;
+        return null;
     }
 
     private void onDealClicked(int position, Datum dealIs) {
@@ -202,50 +188,36 @@ public class PopularDealsFragment extends MainNavigationItemFragment implements
     }
 
     @Override
-    public void onResponse(JSONObject response) {
+    public void onPageLoaded(int page, List<Datum> listOfData, int totalCount) {
         Runnable runnable = () ->
         {
             mBinding.progressBar.setVisibility(View.GONE);
-            if (response != null && response.length() != 0) {
-                if (response.length() >= 0) {
-                    serverRespStr = String.valueOf(response);
-                    final TopDeals respTopDeals = gson.fromJson(serverRespStr, TopDeals.class);
-                    final SeoSetting seosetRsp = respTopDeals.getSeoSetting();
-                    final Deals dealsRsp = respTopDeals.getDeals();
-                    final List<Datum> listOfData = dealsRsp.getData();
-                    if (Validation.isNotNull(dealsRsp.getData())) {
-                         sizeOfDeals = listOfData.size();
-
-                        if (sizeOfDeals>0)
-                        {
-                            for (int i = 0; i < sizeOfDeals; i++) {
-                                mDataset = dealsRsp.getData();
-                            }
-                        /*Insert data into local db*/
-                            insertPopularDeals(mDataset);
-                            setData(mDataset);
-                        }else  if(sizeOfDeals<=0)
-                        {
-                            showErrorMessage(StatusCode.CODE_ERROR, "Popular deals data not available.");
-                        }
-                    }else {
-                        showErrorMessage(StatusCode.CODE_ERROR, "Data Not found.");
-                    }
-                }
+            if (page > 1) {
+                /*Append the next page below the loaded rows*/
+                m_adapter.appendDataSet(listOfData);
+                return;
+            }
+            sizeOfDeals = listOfData.size();
+            if (sizeOfDeals>0)
+            {
+                mDataset = listOfData;
+                setData(mDataset);
+            }else
+            {
+                showErrorMessage(StatusCode.CODE_ERROR, "Popular deals data not available.");
             }
         };
         runInUI(runnable);
 
     }
 
-    public void insertPopularDeals(List<Datum> mDataset) {
-        if (mDataset != null) {
-            dbAdapter.open();
-            for (Datum details : mDataset) {
-                dbAdapter.insertPopularDeals(details);
-            }
-            dbAdapter.close();
-        }
+    @Override
+    public void onFeedNotModified() {
+        Runnable runnable = () ->
+        {
+            mBinding.progressBar.setVisibility(View.GONE);
+        };
+        runInUI(runnable);
     }
 
     @Override
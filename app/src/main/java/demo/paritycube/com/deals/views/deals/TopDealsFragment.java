@@ -10,48 +10,44 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
-import com.android.volley.Request;
 import com.android.volley.Response;
 import com.android.volley.VolleyError;
-import com.google.gson.Gson;
-
-import org.json.JSONObject;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import demo.paritycube.com.deals.ParityApplication;
 import demo.paritycube.com.deals.R;
 import demo.paritycube.com.deals.core.tools.http.ConnectionHandler;
-import demo.paritycube.com.deals.core.tools.http.CustomRequest;
-import demo.paritycube.com.deals.core.tools.http.JsonSerializer;
 import demo.paritycube.com.deals.core.tools.http.StatusCode;
 import demo.paritycube.com.deals.databinding.TopDealsFragmentBinding;
-import demo.paritycube.com.deals.db.DBAdapter;
 import demo.paritycube.com.deals.db.DbConstants;
+import demo.paritycube.com.deals.db.DealsRepository;
 import demo.paritycube.com.deals.misc.widgets.MainNavigationItemFragment;
 import demo.paritycube.com.deals.pojo.Datum;
 import demo.paritycube.com.deals.pojo.Deals;
-import demo.paritycube.com.deals.pojo.SeoSetting;
 import demo.paritycube.com.deals.pojo.TopDeals;
 import demo.paritycube.com.deals.util.AlertDialogFactory;
+import demo.paritycube.com.deals.util.AssetJsonLoader;
+import demo.paritycube.com.deals.util.DealSnapshot;
 import demo.paritycube.com.deals.util.HttpUrlsandKeys;
 import demo.paritycube.com.deals.util.Validation;
 import demo.paritycube.com.deals.views.deals.adapter.DealsRecyclerAdapter;
 import demo.paritycube.com.deals.views.menu.MenuViewController;
 
-public class TopDealsFragment extends MainNavigationItemFragment implements Response.ErrorListener, Response.Listener<JSONObject>, ConnectionHandler {
+public class TopDealsFragment extends MainNavigationItemFragment implements Response.ErrorListener, DealsPager.PageListener, ConnectionHandler {
 
     /*Properties*/
     public static final String BUNDLE_TYPE = "type";
     TopDealsFragmentBinding m_binding;
     private DealsRecyclerAdapter m_adapter;
+    private DealsPager m_pager;
     public static final String TAG = TopDealsFragment.class.getSimpleName();
-    Gson gson = new Gson();
-    private String serverRespStr;
     private ParityApplication appController;
     Context context;
     private List<Datum> mDataset;
-    private DBAdapter dbAdapter;
+    private DealsRepository m_repository;
     private int m_type;
     public TopDealsFragment() {
         // Required empty public constructor
@@ -75,7 +71,7 @@ public class TopDealsFragment extends MainNavigationItemFragment implements Resp
     public View onCreateView(LayoutInflater inflater, @Nullable ViewGroup container,
                              @Nullable Bundle savedInstanceState) {
         context = getContext();
-        dbAdapter = new DBAdapter(context);
+        m_repository = new DealsRepository(context, DbConstants.FeedType.TOP);
         appController = (ParityApplication) getActivity().getApplicationContext();
     /* Setup view. */
         TopDealsFragmentBinding binding =
@@ -83,6 +79,8 @@ public class TopDealsFragment extends MainNavigationItemFragment implements Resp
         m_binding = binding;
         binding.recyclerView.setAdapter(m_adapter = new DealsRecyclerAdapter(context, this::onDealClicked));
         binding.recyclerView.setLayoutManager(new LinearLayoutManager(context));
+        m_pager = new DealsPager(HttpUrlsandKeys.topdeals, getRequestScope(), m_repository, this, this);
+        binding.recyclerView.addOnScrollListener(m_pager);
         if (MenuViewController.TOPDEAL)
         {
             Toolbar toolbar = getToolbar();
@@ -99,46 +97,34 @@ public class TopDealsFragment extends MainNavigationItemFragment implements Resp
     }
 
 
+    /**
+     * Renders the cached feed first and only goes to the network when the
+     * cache is missing or older than its TTL; the refreshed pages are merged
+     * into the list by {@link #onPageLoaded(int, List, int)}.
+     */
     private void topDealSync() {
-        if (Validation.isNetworkAvailable(getActivity())) {
-            //String url = HttpUrlsandKeys.buildServiceUrl(HttpUrlsandKeys.topdeals);
-            CustomRequest customRequest = new CustomRequest(Request.Method.GET, HttpUrlsandKeys.topdeals, null, this, this);
-            ParityApplication.getInstance().addToRequestQueue(customRequest, TAG);
-
-        } else {
-            Runnable runnable = () -> {
-                try {
-                    /*check offline data available or not*/
-                    dbAdapter.open();
-                   if (dbAdapter.isDataExistInDB(DbConstants.Tables.TOP_DEALS)){
-                       /*read available data from db*/
-                       mDataset = appController.getListOfTopDeals();
-                       if (mDataset!=null)
-                       {
-                           m_binding.progressBar.setVisibility(View.GONE);
-                           switch (200) {
-                               case StatusCode.CODE_OK:
-                                   setData(mDataset);
-                                   break;
-                               default:
-                                   showErrorMessage(StatusCode.CODE_ERROR, "Data Not found.");
-                                   break;
-                           }
-                       }
-                   }else {
-                       /*get data from assets*/
-                       TopDealsFragment.this.getOfflineData();
-                       setData(mDataset);
-                   }
-
-                    dbAdapter.close();
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-
-            };
-            runInUI(runnable);
+        runInBackground(m_repository::readCached, this::onCachedDeals);
+    }
 
+    private void onCachedDeals(DealsRepository.CachedFeed feed) {
+        List<Datum> cached = feed != null ? feed.getDeals() : Collections.<Datum>emptyList();
+        boolean fresh = feed != null && feed.isFresh();
+        boolean online = Validation.isNetworkAvailable(getActivity());
+        if (!cached.isEmpty()) {
+            m_binding.progressBar.setVisibility(View.GONE);
+            setData(cached);
+        }
+        if (online && !fresh) {
+            m_pager.loadFirstPage(cached.size());
+        } else if (online) {
+            m_pager.resumeAfter(cached.size());
+        } else if (cached.isEmpty()) {
+            /*get data from assets*/
+            final Context appContext = context.getApplicationContext();
+            runInBackground(() -> getOfflineData(appContext), list -> {
+                m_binding.progressBar.setVisibility(View.GONE);
+                setData(list);
+            });
         }
     }
 
@@ -148,20 +134,19 @@ public class TopDealsFragment extends MainNavigationItemFragment implements Resp
 
     }
     /* this is optional, just to show data if its not loaded by both channel 1. online 2. offline*/
-    private int getOfflineData() {
-        String json = ParityApplication.loadJsonData(context, "topdealresponse.json");
-        // Type collectType = new TypeToken<List<TopDeals>>(){}.getType();
-        final TopDeals topDealsAre = JsonSerializer.serialize(json, TopDeals.class);
-        final Deals dealsiS = topDealsAre.getDeals();
-        final List<Datum> dataIs = dealsiS.getData();
-        if (Validation.isNotNull(dealsiS.getData())) {
-            int sizeIs = dealsiS.getData().size();
-            for (int i = 0; i < sizeIs; i++) {
-                mDataset = dealsiS.getData();
-            }
-
+    private static List<Datum> getOfflineData(Context context) {
+        /*Prefer the binary snapshot generated at build time, the JSON asset is the fallback*/
+        final DealSnapshot snapshot = DealSnapshot.open(context, "topdealresponse.pcds");
+        if (snapshot != null) {
+            /* Decode every row here, off the main thread, the adapter copies what it gets */
+            return snapshot.getRowCount() > 0 ? new ArrayList<>(snapshot.asList()) : null;
         }
-        return StatusCode.CODE_OK;
+        final TopDeals topDealsAre = AssetJsonLoader.load(context, "topdealresponse.json", TopDeals.class);
+        final Deals dealsiS = topDealsAre != null ? topDealsAre.getDeals() : null;
+        if (dealsiS != null && Validation.isNotNull(dealsiS.getData())) {
+            return dealsiS.getData();
+        }
+        return null;
     }
 
     private void onDealClicked(int position, Datum dealIs) {
@@ -180,28 +165,15 @@ public class TopDealsFragment extends MainNavigationItemFragment implements Resp
     }
 
     @Override
-    public void onResponse(JSONObject response) {
+    public void onPageLoaded(int page, List<Datum> listOfData, int totalCount) {
         Runnable runnable = () ->
         {
             m_binding.progressBar.setVisibility(View.GONE);
-            if (response != null && response.length() != 0) {
-                if (response.length() >= 0) {
-                    serverRespStr = String.valueOf(response);
-                    final TopDeals respTopDeals = gson.fromJson(serverRespStr, TopDeals.class);
-                    final SeoSetting seosetRsp = respTopDeals.getSeoSetting();
-                    final Deals dealsRsp = respTopDeals.getDeals();
-                    final List<Datum> listOfData = dealsRsp.getData();
-                    if (Validation.isNotNull(dealsRsp.getData())) {
-                        int sizeOfDeals = listOfData.size();
-                        for (int i = 0; i < sizeOfDeals; i++) {
-                            mDataset = dealsRsp.getData();
-                        }
-                        /*Insert data into local db*/
-                        insertTopDeals(mDataset);
-                        setData(mDataset);
-
-                    }
-                }
+            if (page > 1) {
+                m_adapter.appendDataSet(listOfData);
+            } else if (!listOfData.isEmpty()) {
+                mDataset = listOfData;
+                setData(mDataset);
             } else {
                 showErrorMessage(StatusCode.CODE_ERROR, "Data Not found.");
             }
@@ -209,14 +181,13 @@ public class TopDealsFragment extends MainNavigationItemFragment implements Resp
         runInUI(runnable);
     }
 
-    public void insertTopDeals(List<Datum> mDataset) {
-        if (mDataset != null) {
-            dbAdapter.open();
-            for (Datum details : mDataset) {
-                dbAdapter.insertTopDeals(details);
-            }
-            dbAdapter.close();
-        }
+    @Override
+    public void onFeedNotModified() {
+        Runnable runnable = () ->
+        {
+            m_binding.progressBar.setVisibility(View.GONE);
+        };
+        runInUI(runnable);
     }
 
     @Override
@@ -0,0 +1,94 @@
+package demo.paritycube.com.deals.views.deals.adapter;
+
+import android.support.v7.util.DiffUtil;
+
+import java.util.List;
+
+import demo.paritycube.com.deals.pojo.Datum;
+
+/**
+ * Diffs two versions of a deal feed. Rows are matched on {@link Datum#getId()}
+ * and a change payload describes which part of the row moved, so the view
+ * holder can rebind text or counters without reloading the image.
+ */
+public class DealsDiffCallback extends DiffUtil.Callback {
+    /* Payload flags */
+    public static final int PAYLOAD_TEXT = 1;
+    public static final int PAYLOAD_STATS = 1 << 1;
+
+    private final List<Datum> m_oldList;
+    private final List<Datum> m_newList;
+
+    public DealsDiffCallback(List<Datum> oldList, List<Datum> newList) {
+        m_oldList = oldList;
+        m_newList = newList;
+    }
+
+    @Override
+    public int getOldListSize() {
+        return m_oldList == null ? 0 : m_oldList.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+        return m_newList == null ? 0 : m_newList.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+        Integer oldId = m_oldList.get(oldItemPosition).getId();
+        return oldId != null && oldId.equals(m_newList.get(newItemPosition).getId());
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+        Datum oldDeal = m_oldList.get(oldItemPosition);
+        Datum newDeal = m_newList.get(newItemPosition);
+        return equal(oldDeal.getImage(), newDeal.getImage())
+                && !textChanged(oldDeal, newDeal)
+                && !statsChanged(oldDeal, newDeal);
+    }
+
+    /**
+     * Returns the payload flags for a changed row, or null when the image
+     * changed and the row needs a full rebind.
+     */
+    @Override
+    public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+        Datum oldDeal = m_oldList.get(oldItemPosition);
+        Datum newDeal = m_newList.get(newItemPosition);
+        if (!equal(oldDeal.getImage(), newDeal.getImage())) {
+            return null;
+        }
+        int flags = 0;
+        if (textChanged(oldDeal, newDeal)) {
+            flags |= PAYLOAD_TEXT;
+        }
+        if (statsChanged(oldDeal, newDeal)) {
+            flags |= PAYLOAD_STATS;
+        }
+        return flags;
+    }
+
+    /* Internal methods */
+
+    private static boolean textChanged(Datum oldDeal, Datum newDeal) {
+        return !equal(oldDeal.getTitle(), newDeal.getTitle())
+                || !equal(oldDeal.getDescription(), newDeal.getDescription());
+    }
+
+    private static boolean statsChanged(Datum oldDeal, Datum newDeal) {
+        return !equal(oldDeal.getVoteCount(), newDeal.getVoteCount())
+                || !equal(oldDeal.getScore(), newDeal.getScore())
+                || !equal(oldDeal.getCurrentPrice(), newDeal.getCurrentPrice())
+                || !equal(oldDeal.getOriginalPrice(), newDeal.getOriginalPrice())
+                || !equal(oldDeal.getOffPercent(), newDeal.getOffPercent())
+                || !equal(oldDeal.getCommentsCount(), newDeal.getCommentsCount())
+                || !equal(oldDeal.getViewCount(), newDeal.getViewCount())
+                || !equal(oldDeal.getState(), newDeal.getState());
+    }
+
+    private static boolean equal(Object x, Object y) {
+        return x == null ? y == null : x.equals(y);
+    }
+}
@@ -2,16 +2,24 @@ package demo.paritycube.com.deals.views.deals.adapter;
 
 import android.content.Context;
 import android.databinding.DataBindingUtil;
+import android.os.AsyncTask;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.ViewGroup;
 
+import com.squareup.picasso.Picasso;
+
+import java.util.ArrayList;
 import java.util.List;
 
 import demo.paritycube.com.deals.R;
+import demo.paritycube.com.deals.core.tools.image.ImagePipeline;
 import demo.paritycube.com.deals.databinding.DealItemBinding;
 import demo.paritycube.com.deals.misc.widgets.AnimationAdapter;
 import demo.paritycube.com.deals.pojo.Datum;
+import demo.paritycube.com.deals.util.Validation;
 import demo.paritycube.com.deals.views.deals.DealItemsViewHolder;
 import demo.paritycube.com.deals.views.deals.DealsClickListener;
 
@@ -24,6 +32,11 @@ public class DealsRecyclerAdapter extends AnimationAdapter {
     List<Datum> dealsList;
     private DealsClickListener m_clickListener;
     private Context mContext;
+    private List<Datum> m_pendingList;
+    private int m_generation;
+    private final Object m_imageTag = new Object();
+    private final ImageScrollListener m_scrollListener = new ImageScrollListener();
+    private static final int PREFETCH_ROWS = 6;
      /* Initializations */
 
     public DealsRecyclerAdapter(Context context, DealsClickListener clickListener)
@@ -31,10 +44,53 @@ public class DealsRecyclerAdapter extends AnimationAdapter {
         mContext = context;
         m_clickListener = clickListener;
     }
+    /**
+     * Replaces the data set. The first load is applied directly, later ones are
+     * diffed against the current rows on a background thread and only the
+     * resulting insert / move / change / remove notifications are dispatched.
+     */
     public void updateDataSet(List<Datum> dealsOrder)
     {
-        dealsList = dealsOrder;
-        notifyDataSetChanged();
+        final List<Datum> newList = dealsOrder == null ? null : new ArrayList<>(dealsOrder);
+        final int generation = ++m_generation;
+        if (dealsList == null || dealsList.isEmpty() || newList == null)
+        {
+            m_pendingList = null;
+            dealsList = newList;
+            notifyDataSetChanged();
+            return;
+        }
+
+        m_pendingList = newList;
+        new DiffTask(this, generation, dealsList, newList)
+                .executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * Appends a freshly loaded page, notifying only the inserted range so the
+     * rows that are already bound are left untouched.
+     */
+    public void appendDataSet(List<Datum> page)
+    {
+        if (page == null || page.isEmpty())
+        {
+            return;
+        }
+        if (m_pendingList != null)
+        {
+            /* A diff is still running, fold the page into its target list. */
+            List<Datum> target = new ArrayList<>(m_pendingList);
+            target.addAll(page);
+            updateDataSet(target);
+            return;
+        }
+        if (dealsList == null)
+        {
+            dealsList = new ArrayList<>();
+        }
+        int positionStart = dealsList.size();
+        dealsList.addAll(page);
+        notifyItemRangeInserted(positionStart, page.size());
     }
     @Override
     public int getItemCount ()
@@ -49,7 +105,7 @@ public class DealsRecyclerAdapter extends AnimationAdapter {
         DealItemBinding binding =
                 DataBindingUtil.inflate(inflater, R.layout.deal_item, parent, false);
 
-        return new DealItemsViewHolder(binding, m_clickListener);
+        return new DealItemsViewHolder(binding, m_clickListener, m_imageTag);
     }
 
     @Override
@@ -61,9 +117,149 @@ public class DealsRecyclerAdapter extends AnimationAdapter {
         ((DealItemsViewHolder) holder).onBind(mContext,order);
     }
 
+    @Override
+    public void onBindViewHolder (RecyclerView.ViewHolder holder, int position, List payloads)
+    {
+        if (payloads.isEmpty())
+        {
+            onBindViewHolder(holder, position);
+            return;
+        }
+
+        int flags = 0;
+        for (Object payload : payloads)
+        {
+            if (payload instanceof Integer)
+            {
+                flags |= (Integer) payload;
+            }
+        }
+        ((DealItemsViewHolder) holder).onBindPartial(dealsList.get(position), flags);
+    }
+
+    @Override
+    public void onViewRecycled (RecyclerView.ViewHolder holder)
+    {
+        super.onViewRecycled(holder);
+        ((DealItemsViewHolder) holder).onRecycled();
+    }
+
+    @Override
+    public void onAttachedToRecyclerView (RecyclerView recyclerView)
+    {
+        super.onAttachedToRecyclerView(recyclerView);
+        recyclerView.addOnScrollListener(m_scrollListener);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView (RecyclerView recyclerView)
+    {
+        super.onDetachedFromRecyclerView(recyclerView);
+        recyclerView.removeOnScrollListener(m_scrollListener);
+        Picasso.with(mContext).cancelTag(m_imageTag);
+    }
+
     @Override
     protected boolean shouldAnimate (int position)
     {
        return true;
     }
+
+    /* Internal methods */
+
+    private void onDiffCalculated (int generation, List<Datum> newList, DiffUtil.DiffResult result)
+    {
+        if (generation != m_generation)
+        {
+            /* A newer data set was submitted meanwhile. */
+            return;
+        }
+        m_pendingList = null;
+        dealsList = newList;
+        result.dispatchUpdatesTo(this);
+    }
+
+    /**
+     * Warms the memory cache with the thumbnails of the rows just below the
+     * viewport, so they bind without a placeholder when scrolled in.
+     */
+    private void prefetchImages (RecyclerView recyclerView)
+    {
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (dealsList == null || !(layoutManager instanceof LinearLayoutManager))
+        {
+            return;
+        }
+        int first = ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition() + 1;
+        if (first <= 0)
+        {
+            return;
+        }
+        int size = ImagePipeline.getThumbnailSize(mContext);
+        int last = Math.min(dealsList.size(), first + PREFETCH_ROWS);
+        for (int position = first; position < last; position++)
+        {
+            String image = dealsList.get(position).getImage();
+            if (!Validation.isEmpty(image))
+            {
+                Picasso.with(mContext)
+                        .load(DealItemsViewHolder.createThumbnailUri(image, size))
+                        .tag(m_imageTag)
+                        .priority(Picasso.Priority.LOW)
+                        .fetch();
+            }
+        }
+    }
+
+    /**
+     * Holds image loads back while the list flings, they are resumed as soon
+     * as it settles or the user takes over; an idle list prefetches the rows
+     * below the viewport.
+     */
+    private class ImageScrollListener extends RecyclerView.OnScrollListener
+    {
+        @Override
+        public void onScrollStateChanged (RecyclerView recyclerView, int newState)
+        {
+            Picasso picasso = Picasso.with(mContext);
+            if (newState == RecyclerView.SCROLL_STATE_SETTLING)
+            {
+                picasso.pauseTag(m_imageTag);
+                return;
+            }
+            picasso.resumeTag(m_imageTag);
+            if (newState == RecyclerView.SCROLL_STATE_IDLE)
+            {
+                prefetchImages(recyclerView);
+            }
+        }
+    }
+
+    private static class DiffTask extends AsyncTask<Void, Void, DiffUtil.DiffResult>
+    {
+        private final DealsRecyclerAdapter m_adapter;
+        private final int m_generation;
+        private final List<Datum> m_oldList;
+        private final List<Datum> m_newList;
+
+        DiffTask (DealsRecyclerAdapter adapter, int generation, List<Datum> oldList, List<Datum> newList)
+        {
+            m_adapter = adapter;
+            m_generation = generation;
+            m_oldList = oldList;
+            m_newList = newList;
+        }
+
+        @Override
+        protected DiffUtil.DiffResult doInBackground (Void... params)
+        {
+            return DiffUtil.calculateDiff(new DealsDiffCallback(m_oldList, m_newList));
+        }
+
+        @Override
+        protected void onPostExecute (DiffUtil.DiffResult result)
+        {
+            m_adapter.onDiffCalculated(m_generation, m_newList, result);
+        }
+    }
 }
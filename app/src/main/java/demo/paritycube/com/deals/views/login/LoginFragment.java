@@ -3,7 +3,6 @@ package demo.paritycube.com.deals.views.login;
 import android.app.ProgressDialog;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.Signature;
@@ -11,6 +10,7 @@ import android.databinding.DataBindingUtil;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
 import android.util.Base64;
+import android.util.Pair;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -25,7 +25,6 @@ import com.facebook.GraphResponse;
 import com.facebook.Profile;
 import com.facebook.login.LoginManager;
 import com.facebook.login.LoginResult;
-import com.google.gson.Gson;
 
 import org.json.JSONObject;
 
@@ -38,15 +37,15 @@ import demo.paritycube.com.deals.ParityActivity;
 import demo.paritycube.com.deals.ParityApplication;
 import demo.paritycube.com.deals.R;
 import demo.paritycube.com.deals.core.BaseActivity;
+import demo.paritycube.com.deals.core.tools.http.JsonSerializer;
 import demo.paritycube.com.deals.databinding.LoginFragmentBinding;
-import demo.paritycube.com.deals.db.DBAdapter;
 import demo.paritycube.com.deals.misc.widgets.MainNavigationItemFragment;
 import demo.paritycube.com.deals.pojo.UserInfo;
 import demo.paritycube.com.deals.security.KeyStoreEncryptor;
 import demo.paritycube.com.deals.util.AlertDialogFactory;
 import demo.paritycube.com.deals.util.DrawableUtil;
 import demo.paritycube.com.deals.util.Logger;
-import demo.paritycube.com.deals.util.PreferenceUtil;
+import demo.paritycube.com.deals.util.PreferenceStore;
 import demo.paritycube.com.deals.util.Validation;
 import demo.paritycube.com.deals.util.ViewHelper;
 
@@ -54,17 +53,16 @@ import demo.paritycube.com.deals.util.ViewHelper;
 public class LoginFragment extends MainNavigationItemFragment {
   /* Properties */
 
+    public static final String PREFS_NAME = "loginPrefs";
     public static final String PREF_USERNAME = "username";
     public static final String PREF_PASSWORD = "password";
     public static final String TAG = LoginFragment.class.getSimpleName();
-    Gson gson = new Gson();
     private LoginFragmentBinding m_binding;
-    private SharedPreferences m_prefs;
+    private PreferenceStore m_prefs;
     private String facebook_id, profile_image, full_name, email_id;
     private CallbackManager callbackManager;
     private String userFBDetails;
     private String authToken;
-    private DBAdapter dbAdapter;
     private ParityApplication appController;
 
   /* Life-cycle callbacks */
@@ -72,7 +70,7 @@ public class LoginFragment extends MainNavigationItemFragment {
     @Override
     public void onAttach(Context context) {
         super.onAttach(context);
-        m_prefs = context.getSharedPreferences("loginPrefs", Context.MODE_PRIVATE);
+        m_prefs = PreferenceStore.getInstance(context, PREFS_NAME);
     }
 
     @Override
@@ -87,7 +85,6 @@ public class LoginFragment extends MainNavigationItemFragment {
     public View onCreateView(LayoutInflater inflater, @Nullable ViewGroup container,
                              @Nullable Bundle savedInstanceState) {
         final Context context = getContext();
-        dbAdapter = new DBAdapter(context);
         appController = (ParityApplication) getActivity().getApplication();
         FacebookSdk.sdkInitialize(getActivity().getApplicationContext());
         callbackManager = CallbackManager.Factory.create();
@@ -96,11 +93,23 @@ public class LoginFragment extends MainNavigationItemFragment {
         LoginFragmentBinding binding =
                 DataBindingUtil.inflate(inflater, R.layout.login_fragment, container, false);
         m_binding = binding;
-        binding.emailEditText.setText(PreferenceUtil.getStringProperty(m_prefs, PREF_USERNAME, ""));
 
-        String password = KeyStoreEncryptor.decrypt(
-                PreferenceUtil.getStringProperty(m_prefs, PREF_PASSWORD, ""));
-        binding.passwordEditText.setText(password);
+        /* The preferences may still be loading and the first decrypt unwraps the key from the
+         * keystore, restore the remembered credentials off the main thread. */
+        final Context appContext = context.getApplicationContext();
+        runInBackground(() -> Pair.create(m_prefs.getString(PREF_USERNAME, ""),
+                KeyStoreEncryptor.decrypt(appContext, m_prefs.getString(PREF_PASSWORD, ""))),
+                credentials -> {
+                    if (credentials == null) {
+                        return;
+                    }
+                    if (m_binding.emailEditText.length() == 0) {
+                        m_binding.emailEditText.setText(credentials.first);
+                    }
+                    if (m_binding.passwordEditText.length() == 0) {
+                        m_binding.passwordEditText.setText(credentials.second);
+                    }
+                });
 
         ViewHelper.setBackgroundDrawable(binding.loginButton,
                 DrawableUtil.createDrawable(context, R.drawable.field_single_bg));
@@ -161,16 +170,13 @@ public class LoginFragment extends MainNavigationItemFragment {
                 JSONObject json = response.getJSONObject();
                 if (json != null) {
                     Logger.info("JSON DATA" + json.toString());
-                    final UserInfo logDetails = gson.fromJson(json.toString(), UserInfo.class);
+                    final UserInfo logDetails = JsonSerializer.serialize(json.toString(), UserInfo.class);
                     if (logDetails.isValid()) {
                         full_name = logDetails.getName();
                         profile_image = logDetails.getLink();
                         email_id = logDetails.getEmail();
                         facebook_id = String.valueOf(logDetails.getId());
                         appController.setUserDetails(logDetails);
-                        dbAdapter.open();
-                        dbAdapter.insertUserDetails(facebook_id, logDetails.getName(), logDetails.getEmail(), logDetails.getLink());
-                        dbAdapter.close();
                         /*call main activity after succesful login*/
                         callMainActivity();
                     }
@@ -238,29 +244,26 @@ public class LoginFragment extends MainNavigationItemFragment {
         ProgressDialog progressDialog =
                 AlertDialogFactory.buildProgressDialog(getContext(), R.string.please_wait);
         progressDialog.show();
-        runInUIWithDelay(() ->
+        final Context appContext = getContext().getApplicationContext();
+        runInUIWithDelay(() -> runInBackground(
+                () -> rememberPass ? KeyStoreEncryptor.encrypt(appContext, password) : null,
+                encryptedPassword ->
         {
             progressDialog.dismiss();
       /* Store last email address if able. */
-            PreferenceUtil.setStringProperty(m_prefs, PREF_USERNAME, username);
-
-            String encryptedPassword = null;
-            if (rememberPass) {
-                encryptedPassword = KeyStoreEncryptor.encrypt(getContext(), password);
-            }
-            PreferenceUtil.setStringProperty(m_prefs, PREF_PASSWORD, encryptedPassword);
+            m_prefs.edit()
+                    .putString(PREF_USERNAME, username)
+                    .putString(PREF_PASSWORD, encryptedPassword)
+                    .apply();
             UserInfo userStaticInfo = new UserInfo();
             userStaticInfo.setId(String.valueOf(0));
             userStaticInfo.setName("Test");
             userStaticInfo.setEmail(username);
             userStaticInfo.setLink("");
             appController.setUserDetails(userStaticInfo);
-            dbAdapter.open();
-            dbAdapter.insertUserDetails(userStaticInfo.getId(), userStaticInfo.getName(), userStaticInfo.getEmail(), userStaticInfo.getLink());
-            dbAdapter.close();
             callMainActivity();
 
-        }, 2000L);
+        }), 2000L);
     }
 
     private void callMainActivity() {
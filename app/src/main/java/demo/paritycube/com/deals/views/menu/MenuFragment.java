@@ -23,17 +23,16 @@ import demo.paritycube.com.deals.ParityApplication;
 import demo.paritycube.com.deals.R;
 import demo.paritycube.com.deals.core.BaseFragment;
 import demo.paritycube.com.deals.core.ViewController;
+import demo.paritycube.com.deals.core.tools.session.UserSessionStore;
 import demo.paritycube.com.deals.databinding.MenuFragmentBinding;
-import demo.paritycube.com.deals.db.DBAdapter;
 import demo.paritycube.com.deals.pojo.UserInfo;
 import demo.paritycube.com.deals.util.AlertDialogFactory;
 import demo.paritycube.com.deals.views.MasterDetailHandler;
 
-public class MenuFragment extends BaseFragment {
+public class MenuFragment extends BaseFragment implements UserSessionStore.Listener {
   /* Properties */
 
     private MasterDetailHandler m_masterDetailHandler;
-    private DBAdapter dbAdapter;
     private ParityApplication appController;
     private String displayNameIs;
     private MenuFragmentBinding mBinding;
@@ -66,29 +65,40 @@ public class MenuFragment extends BaseFragment {
                              @Nullable Bundle savedInstanceState) {
         final Context context = getContext();
         FacebookSdk.sdkInitialize(getActivity().getApplicationContext());
-        dbAdapter = new DBAdapter(context);
         appController = (ParityApplication) getActivity().getApplication();
-        UserInfo userInfo = appController.getUserDetailsDataDetails();
         /* Setup view. */
         MenuFragmentBinding binding =
                 DataBindingUtil.inflate(inflater, R.layout.menu_fragment, container, false);
         mBinding = binding;
         binding.recyclerView.setLayoutManager(new LinearLayoutManager(context));
-        try{
-            if (userInfo.isValid()) {
-                displayNameIs = userInfo.getName();
-            } else {
-                displayNameIs = "Test@parity.com";
-            }
-        }catch (NullPointerException npe)
-        {
-            npe.printStackTrace();
-        }
-        binding.userTextView.setText(displayNameIs);
+        onUserChanged(appController.getUserDetails());
+        appController.getUserSession().addListener(this);
         binding.logoutButton.setOnClickListener(this::logout);
 
         return binding.getRoot();
     }
+
+    @Override
+    public void onDestroyView() {
+        appController.getUserSession().removeListener(this);
+        super.onDestroyView();
+    }
+
+    /* UserSessionStore.Listener methods */
+
+    @Override
+    public void onUserChanged(UserInfo userInfo) {
+        if (mBinding == null) {
+            return;
+        }
+        if (userInfo != null && userInfo.isValid()) {
+            displayNameIs = userInfo.getName();
+        } else {
+            displayNameIs = "Test@parity.com";
+        }
+        mBinding.userTextView.setText(displayNameIs);
+    }
+
     private void logout(View view) {
         AlertDialogFactory.buildAlertDialog(getActivity(),
                 0,
@@ -100,15 +110,11 @@ public class MenuFragment extends BaseFragment {
                         if (AccessToken.getCurrentAccessToken() != null) {
                             LoginManager.getInstance().logOut();
                             getActivity().finish();
-                            dbAdapter.open();
-                            dbAdapter.removeUserAccount();
-                            dbAdapter.close();
+                            appController.setUserDetails(null);
 
                         }else {
                             getActivity().finish();
-                            dbAdapter.open();
-                            dbAdapter.removeUserAccount();
-                            dbAdapter.close();
+                            appController.setUserDetails(null);
                         }
 
                     }
@@ -6,6 +6,7 @@ import android.support.v4.app.FragmentManager;
 import android.support.v4.app.FragmentTransaction;
 import android.view.View;
 
+import demo.paritycube.com.deals.ParityApplication;
 import demo.paritycube.com.deals.R;
 import demo.paritycube.com.deals.core.BaseActivity;
 import demo.paritycube.com.deals.databinding.SplashActivityBinding;
@@ -19,6 +20,7 @@ public class SplashActivity extends BaseActivity
   /* Properties */
 
   private SplashActivityBinding m_binding;
+  private final Runnable m_onCriticalReady = () -> runInUI(() -> showLoginFragment(false));
 
   /* Life-cycle callback */
 
@@ -27,16 +29,16 @@ public class SplashActivity extends BaseActivity
   {
     super.onCreate(savedInstanceState);
     m_binding = DataBindingUtil.setContentView(this, R.layout.splash_activity);
-    runInUIWithDelay(() ->
-    {
-
-      showLoginFragment(false);
-
-    }, 2000L);
-
-    }
-
+    /* Leave the splash as soon as the warm-up the login screen needs is done. */
+    ParityApplication.getInstance().getStartup().whenCriticalReady(m_onCriticalReady);
+  }
 
+  @Override
+  protected void onDestroy ()
+  {
+    ParityApplication.getInstance().getStartup().removeCriticalReadyCallback(m_onCriticalReady);
+    super.onDestroy();
+  }
 
   private void showLoginFragment (boolean animate)
   {
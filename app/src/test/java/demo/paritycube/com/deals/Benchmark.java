@@ -0,0 +1,106 @@
+package demo.paritycube.com.deals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Measuring helpers for the JVM benchmarks under src/test. Results are
+ * printed with {@link #report}, assertions only check which side wins so
+ * the tests stay stable on slow or busy machines.
+ */
+public final class Benchmark {
+    private static final int WARM_UP_RUNS = 50;
+
+    public interface Block {
+        void run() throws Exception;
+    }
+
+    private Benchmark() {
+    }
+
+    /**
+     * Returns the bytes of a bundled asset, without the byte order mark some
+     * of them were saved with; feeds coming from the network carry none.
+     */
+    public static byte[] readAsset(String name) throws IOException {
+        byte[] data = readFile("src/main/assets/" + name);
+        if (data.length >= 3 && data[0] == (byte) 0xEF && data[1] == (byte) 0xBB && data[2] == (byte) 0xBF) {
+            data = Arrays.copyOfRange(data, 3, data.length);
+        }
+        return data;
+    }
+
+    /**
+     * Returns the bytes of a file the build generated under build/generated,
+     * e.g. by the snapshot tasks of app/snapshots.gradle, which run before
+     * the unit tests.
+     */
+    public static byte[] readGenerated(String path) throws IOException {
+        return readFile("build/generated/" + path);
+    }
+
+    /**
+     * Returns the bytes the calling thread allocates per run of the block,
+     * averaged over the runs that follow a warm-up.
+     */
+    public static long allocatedBytesPerRun(int runs, Block block) throws Exception {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            block.run();
+        }
+        long start = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < runs; i++) {
+            block.run();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - start) / runs;
+    }
+
+    /**
+     * Returns the median time of a run of the block in nanoseconds, measured
+     * after a warm-up.
+     */
+    public static long medianNanos(int runs, Block block) throws Exception {
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            block.run();
+        }
+        long[] times = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            block.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[runs / 2];
+    }
+
+    public static void report(String name, String format, Object... args) {
+        System.out.println("[benchmark] " + name + ": " + String.format(Locale.US, format, args));
+    }
+
+    private static byte[] readFile(String path) throws IOException {
+        File file = new File(path);
+        if (!file.exists()) {
+            file = new File("app", path);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InputStream input = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = input.read(buffer)) != -1) {
+                bytes.write(buffer, 0, count);
+            }
+        } finally {
+            input.close();
+        }
+        return bytes.toByteArray();
+    }
+}
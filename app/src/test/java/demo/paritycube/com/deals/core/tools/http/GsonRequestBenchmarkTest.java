@@ -0,0 +1,67 @@
+package demo.paritycube.com.deals.core.tools.http;
+
+import com.google.gson.Gson;
+
+import org.json.JSONObject;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import demo.paritycube.com.deals.Benchmark;
+import demo.paritycube.com.deals.pojo.TopDeals;
+import demo.paritycube.com.deals.util.Validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Allocations of parsing the bundled top deals feed with the streaming
+ * {@link GsonRequest} path against the path it replaced: a String of the
+ * body, a validity check, a JSONObject, its String again and a reflective
+ * Gson pass.
+ */
+public class GsonRequestBenchmarkTest {
+    private static final int RUNS = 200;
+    private static final Map<String, String> HEADERS =
+            Collections.singletonMap("Content-Type", "application/json; charset=utf-8");
+
+    private static byte[] s_feed;
+    private static final Gson s_reflectiveGson = new Gson();
+
+    @BeforeClass
+    public static void loadFeed() throws Exception {
+        s_feed = Benchmark.readAsset("topdealresponse.json");
+    }
+
+    @Test
+    public void streamingParse_matchesLegacyParse() throws Exception {
+        TopDeals streamed = GsonRequest.parse(s_feed, HEADERS, TopDeals.class);
+        TopDeals legacy = parseLegacy(s_feed);
+
+        assertEquals(legacy.getDeals().getData().size(), streamed.getDeals().getData().size());
+        assertEquals(legacy.getDeals().getData().get(0).getId(), streamed.getDeals().getData().get(0).getId());
+    }
+
+    @Test
+    public void streamingParse_allocatesLessThanLegacyParse() throws Exception {
+        long streaming = Benchmark.allocatedBytesPerRun(RUNS,
+                () -> GsonRequest.parse(s_feed, HEADERS, TopDeals.class));
+        long legacy = Benchmark.allocatedBytesPerRun(RUNS, () -> parseLegacy(s_feed));
+
+        Benchmark.report("GsonRequest parse of " + s_feed.length + " bytes",
+                "streaming %d B/parse, String+JSONObject+Gson %d B/parse (%.1fx)",
+                streaming, legacy, legacy / (double) streaming);
+        assertTrue(streaming < legacy);
+    }
+
+    private static TopDeals parseLegacy(byte[] data) throws Exception {
+        String json = new String(data, "UTF-8");
+        if (!Validation.isJSONValid(json)) {
+            throw new IllegalStateException("Invalid feed");
+        }
+        JSONObject response = new JSONObject(json);
+        return s_reflectiveGson.fromJson(String.valueOf(response), TopDeals.class);
+    }
+}
@@ -0,0 +1,155 @@
+package demo.paritycube.com.deals.core.tools.session;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import demo.paritycube.com.deals.pojo.UserInfo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives {@link UserSessionStore} over a counting storage and executors run
+ * by hand, checking that reading the user never reaches the storage and that
+ * changes are written in the background and announced on the main thread.
+ */
+public class UserSessionStoreTest {
+    private CountingStorage storage;
+    private QueueExecutor diskIO;
+    private QueueExecutor mainThread;
+    private UserSessionStore store;
+    private List<UserInfo> notified;
+
+    @Before
+    public void createStore() {
+        storage = new CountingStorage(user("fb-1", "Sandy"));
+        diskIO = new QueueExecutor();
+        mainThread = new QueueExecutor();
+        store = new UserSessionStore(storage, diskIO, mainThread);
+        notified = new ArrayList<>();
+        store.addListener(notified::add);
+    }
+
+    @Test
+    public void getUser_beforeLoad_returnsNullWithoutReading() {
+        for (int i = 0; i < 1000; i++) {
+            assertNull(store.getUser());
+        }
+
+        assertFalse(store.isLoaded());
+        assertEquals(0, storage.reads);
+    }
+
+    @Test
+    public void getUser_afterLoad_readsStorageOnce() {
+        store.load();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("Sandy", store.getUser().getName());
+        }
+        store.load();
+
+        assertEquals(1, storage.reads);
+        assertTrue(notified.isEmpty());
+        mainThread.runAll();
+        assertEquals(1, notified.size());
+        assertSame(store.getUser(), notified.get(0));
+    }
+
+    @Test
+    public void setUser_updatesMemoryAndWritesInBackground() {
+        store.load();
+        UserInfo other = user("fb-2", "Alex");
+        store.setUser(other);
+        store.clear();
+
+        assertNull(store.getUser());
+        assertEquals(1, storage.reads);
+        assertTrue(storage.writes.isEmpty());
+        diskIO.runAll();
+        assertEquals(2, storage.writes.size());
+        assertSame(other, storage.writes.get(0));
+        assertNull(storage.writes.get(1));
+        mainThread.runAll();
+        assertEquals(3, notified.size());
+    }
+
+    @Test
+    public void setUser_beforeLoad_isNotOverwrittenByLoad() {
+        UserInfo other = user("fb-2", "Alex");
+        store.setUser(other);
+        store.load();
+
+        assertSame(other, store.getUser());
+        assertEquals(0, storage.reads);
+    }
+
+    @Test
+    public void setUser_whileLoadReads_isNotOverwrittenByLoad() {
+        final UserInfo other = user("fb-2", "Alex");
+        storage.onRead = () -> store.setUser(other);
+
+        assertSame(other, store.load());
+        assertSame(other, store.getUser());
+        assertEquals(1, storage.reads);
+        mainThread.runAll();
+        assertEquals(1, notified.size());
+        assertSame(other, notified.get(0));
+    }
+
+    private static UserInfo user(String id, String name) {
+        UserInfo user = new UserInfo();
+        user.setId(id);
+        user.setName(name);
+        return user;
+    }
+
+    private static class CountingStorage implements UserSessionStore.AccountStorage {
+        final List<UserInfo> writes = new ArrayList<>();
+        final UserInfo stored;
+        Runnable onRead;
+        int reads;
+
+        CountingStorage(UserInfo stored) {
+            this.stored = stored;
+        }
+
+        @Override
+        public UserInfo read() {
+            reads++;
+            if (onRead != null) {
+                onRead.run();
+            }
+            return stored;
+        }
+
+        @Override
+        public void write(UserInfo user) {
+            writes.add(user);
+        }
+    }
+
+    private static class QueueExecutor implements Executor {
+        private final Queue<Runnable> commands = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            commands.add(command);
+        }
+
+        void runAll() {
+            Runnable command;
+            while ((command = commands.poll()) != null) {
+                command.run();
+            }
+        }
+    }
+}
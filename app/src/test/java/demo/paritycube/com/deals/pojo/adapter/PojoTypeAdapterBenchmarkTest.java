@@ -0,0 +1,54 @@
+package demo.paritycube.com.deals.pojo.adapter;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import demo.paritycube.com.deals.Benchmark;
+import demo.paritycube.com.deals.core.tools.http.JsonSerializer;
+import demo.paritycube.com.deals.pojo.TopDeals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Throughput of parsing the bundled top deals feed with the shared Gson and
+ * its streaming adapters, against a Gson built per call as
+ * {@link JsonSerializer} used to, and against a shared reflective Gson.
+ */
+public class PojoTypeAdapterBenchmarkTest {
+    private static final int RUNS = 300;
+
+    private static String s_feed;
+    private static final Gson s_reflectiveGson = new Gson();
+
+    @BeforeClass
+    public static void loadFeed() throws Exception {
+        s_feed = new String(Benchmark.readAsset("topdealresponse.json"), "UTF-8");
+    }
+
+    @Test
+    public void adapters_produceTheReflectiveTree() {
+        TopDeals streamed = JsonSerializer.getGson().fromJson(s_feed, TopDeals.class);
+        TopDeals reflected = s_reflectiveGson.fromJson(s_feed, TopDeals.class);
+
+        assertEquals(s_reflectiveGson.toJsonTree(reflected), s_reflectiveGson.toJsonTree(streamed));
+    }
+
+    @Test
+    public void sharedAdapters_outrunGsonPerCall() throws Exception {
+        long shared = Benchmark.medianNanos(RUNS,
+                () -> JsonSerializer.getGson().fromJson(s_feed, TopDeals.class));
+        long reflective = Benchmark.medianNanos(RUNS,
+                () -> s_reflectiveGson.fromJson(s_feed, TopDeals.class));
+        long perCall = Benchmark.medianNanos(RUNS,
+                () -> new GsonBuilder().create().fromJson(s_feed, TopDeals.class));
+
+        Benchmark.report("TopDeals parse",
+                "shared adapters %.0f parses/s, shared reflective %.0f parses/s, Gson per call %.0f parses/s",
+                1e9 / shared, 1e9 / reflective, 1e9 / perCall);
+        assertTrue(shared < perCall);
+    }
+}
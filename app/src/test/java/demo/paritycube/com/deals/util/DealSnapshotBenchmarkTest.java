@@ -0,0 +1,145 @@
+package demo.paritycube.com.deals.util;
+
+import com.google.gson.stream.JsonReader;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import demo.paritycube.com.deals.Benchmark;
+import demo.paritycube.com.deals.core.tools.http.JsonSerializer;
+import demo.paritycube.com.deals.pojo.Datum;
+import demo.paritycube.com.deals.pojo.TopDeals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Cold decode time and heap of the offline catalog read from a binary
+ * {@link DealSnapshot} against the Gson path, on the page of 20 deals in the
+ * bundled top deals feed and on a synthetic 10k deal catalog built from it.
+ * Every run decodes from a new snapshot, so no string or row decoded by an
+ * earlier run is reused.
+ * <p>
+ * The snapshots are the ones app/snapshots.gradle generates before the unit
+ * tests: the bundled feed's, and the catalog's next to the JSON it was
+ * written from.
+ */
+public class DealSnapshotBenchmarkTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int FIRST_SCREEN_ROWS = 20;
+
+    private static byte[] s_feedJson;
+    private static byte[] s_feedSnapshot;
+    private static byte[] s_catalogJson;
+    private static byte[] s_catalogSnapshot;
+
+    @BeforeClass
+    public static void buildInputs() throws Exception {
+        s_feedJson = Benchmark.readAsset("topdealresponse.json");
+        s_feedSnapshot = Benchmark.readGenerated("assets/snapshots/topdealresponse.pcds");
+        s_catalogJson = Benchmark.readGenerated("snapshotCatalog/catalog.json");
+        s_catalogSnapshot = Benchmark.readGenerated("snapshotCatalog/catalog.pcds");
+    }
+
+    @Test
+    public void snapshot_decodesSameDealsAsGson() throws Exception {
+        List<Datum> parsed = parseJson(s_feedJson);
+        List<Datum> decoded = new DealSnapshot(ByteBuffer.wrap(s_feedSnapshot)).asList();
+
+        assertEquals(parsed.size(), decoded.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            assertEquals(JsonSerializer.deserialize(parsed.get(i)), JsonSerializer.deserialize(decoded.get(i)));
+        }
+    }
+
+    @Test
+    public void snapshot_decodesBundledFeedFasterAndSmallerThanGson() throws Exception {
+        compare("bundled feed", s_feedJson, s_feedSnapshot, 200);
+    }
+
+    @Test
+    public void snapshot_decodesSyntheticCatalogFasterAndSmallerThanGson() throws Exception {
+        compare("synthetic catalog", s_catalogJson, s_catalogSnapshot, 10);
+    }
+
+    /* Internal methods */
+
+    private static void compare(String name, final byte[] json, final byte[] snapshot, int runs) throws Exception {
+        long gsonNanos = Benchmark.medianNanos(runs, () -> parseJson(json));
+        long snapshotNanos = Benchmark.medianNanos(runs, () -> decodeAll(snapshot));
+        long firstScreenNanos = Benchmark.medianNanos(runs, () -> decodeFirstScreen(snapshot));
+        long gsonBytes = Benchmark.allocatedBytesPerRun(runs, () -> parseJson(json));
+        long snapshotBytes = Benchmark.allocatedBytesPerRun(runs, () -> decodeAll(snapshot));
+        long gsonRetained = retainedBytes(() -> parseJson(json));
+        long snapshotRetained = retainedBytes(() -> decodeAll(snapshot));
+
+        int rows = new DealSnapshot(ByteBuffer.wrap(snapshot)).getRowCount();
+        Benchmark.report("DealSnapshot " + name + ", " + rows + " deals",
+                "JSON %d KB, snapshot %d KB; decode all: Gson %.2f ms, snapshot %.2f ms; "
+                        + "first %d rows %.3f ms; allocated: Gson %d KB, snapshot %d KB; "
+                        + "retained: Gson %d KB, snapshot %d KB",
+                json.length / 1024, snapshot.length / 1024, gsonNanos / 1e6, snapshotNanos / 1e6,
+                FIRST_SCREEN_ROWS, firstScreenNanos / 1e6, gsonBytes / 1024, snapshotBytes / 1024,
+                gsonRetained / 1024, snapshotRetained / 1024);
+        assertTrue("time", snapshotNanos < gsonNanos);
+        assertTrue("allocations", snapshotBytes < gsonBytes);
+    }
+
+    private static List<Datum> parseJson(byte[] json) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(json), UTF_8));
+        try {
+            TopDeals topDeals = JsonSerializer.serialize(reader, TopDeals.class);
+            return topDeals.getDeals().getData();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static List<Datum> decodeAll(byte[] snapshot) throws IOException {
+        List<Datum> rows = new DealSnapshot(ByteBuffer.wrap(snapshot)).asList();
+        for (Datum row : rows) {
+            row.getId();
+        }
+        return rows;
+    }
+
+    private static void decodeFirstScreen(byte[] snapshot) throws IOException {
+        DealSnapshot decoder = new DealSnapshot(ByteBuffer.wrap(snapshot));
+        for (int i = 0; i < FIRST_SCREEN_ROWS && i < decoder.getRowCount(); i++) {
+            decoder.getRow(i);
+        }
+    }
+
+    private interface Decoder {
+        Object decode() throws Exception;
+    }
+
+    /**
+     * Returns about how much heap the decoded result keeps alive, from the
+     * used heap after a collection with and without it.
+     */
+    private static long retainedBytes(Decoder decoder) throws Exception {
+        Runtime runtime = Runtime.getRuntime();
+        collectGarbage();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        Object result = decoder.decode();
+        collectGarbage();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+        assertTrue(result != null);
+        return Math.max(0, after - before);
+    }
+
+    private static void collectGarbage() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package demo.paritycube.com.deals.util;
+
+import android.content.SharedPreferences;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link PreferenceStore} over an in-memory preferences file with the
+ * load executor run by hand, so writes made before the load can be checked,
+ * along with the list encodings it reads and writes.
+ */
+public class PreferenceStoreTest {
+    private FakePreferences prefs;
+    private QueueExecutor loader;
+    private PreferenceStore store;
+
+    @Before
+    public void createStore() {
+        prefs = new FakePreferences();
+        loader = new QueueExecutor();
+        store = new PreferenceStore();
+    }
+
+    @Test
+    public void apply_beforeLoad_doesNotWaitAndWinsOverStoredValue() {
+        prefs.values.put("username", "stored");
+        prefs.values.put("remember", true);
+        store.load(loader, () -> prefs);
+
+        store.edit().putString("username", "typed").apply();
+
+        assertFalse(store.isLoaded());
+        assertEquals(0, prefs.applies);
+        loader.runAll();
+        assertEquals("typed", store.getString("username", null));
+        assertTrue(store.getBoolean("remember", false));
+        assertEquals("typed", prefs.values.get("username"));
+        assertEquals(1, prefs.applies);
+    }
+
+    @Test
+    public void remove_beforeLoad_isNotUndoneByLoad() {
+        prefs.values.put("etag:/deals", "\"v1\"");
+        store.load(loader, () -> prefs);
+
+        store.edit().remove("etag:/deals").apply();
+        loader.runAll();
+
+        assertNull(store.getString("etag:/deals", null));
+        assertFalse(prefs.values.containsKey("etag:/deals"));
+    }
+
+    @Test
+    public void apply_afterLoad_writesOnce() {
+        store.load(loader, () -> prefs);
+        loader.runAll();
+
+        store.edit().putInt("count", 3).putLong("seen", 7L).apply();
+
+        assertEquals(3, store.getInt("count", 0));
+        assertEquals(7L, store.getLong("seen", 0L));
+        assertEquals(1, prefs.applies);
+    }
+
+    @Test
+    public void load_whenFileCannotBeRead_releasesReadersAndKeepsChanges() {
+        store.load(loader, () -> {
+            throw new IllegalStateException("no storage");
+        });
+
+        store.edit().putString("username", "typed").apply();
+        loader.runAll();
+        store.edit().putBoolean("remember", true).apply();
+
+        assertTrue(store.isLoaded());
+        assertEquals("typed", store.getString("username", null));
+        assertTrue(store.getBoolean("remember", false));
+        assertEquals(0, store.getInt("count", 0));
+        assertEquals(0, prefs.applies);
+    }
+
+    @Test
+    public void getString_ofList_returnsStoredEncodingBeforeAndAfterDecoding() {
+        store.load(loader, () -> prefs);
+        loader.runAll();
+        List<String> tags = Arrays.asList("top", "popular");
+
+        store.edit().putStringList("tabs", tags).apply();
+        String stored = (String) prefs.values.get("tabs");
+
+        assertEquals(stored, store.getString("tabs", null));
+        assertEquals(tags, store.getStringList("tabs"));
+
+        PreferenceStore reloaded = new PreferenceStore();
+        reloaded.load(loader, () -> prefs);
+        loader.runAll();
+        assertEquals(stored, reloaded.getString("tabs", null));
+        assertEquals(tags, reloaded.getStringList("tabs"));
+        assertEquals(stored, reloaded.getString("tabs", null));
+    }
+
+    @Test
+    public void decodeList_readsListsEncodedWithPlatformBase64() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(3);
+        output.writeUTF("a");
+        output.writeUTF("");
+        output.writeUTF("ünï");
+        output.flush();
+        String stored = "list:" + Base64.getEncoder().encodeToString(bytes.toByteArray());
+
+        assertEquals(Arrays.asList("a", "", "ünï"), PreferenceStore.decodeList(stored));
+        assertEquals(stored, PreferenceStore.encodeList(Arrays.asList("a", "", "ünï")));
+    }
+
+    @Test
+    public void decodeList_ofLegacyValue_dropsTrailingEmptyEntriesLikeSplit() {
+        String[] values = {"a!@#;b", "a!@#;b!@#;!@#;", "a!@#;!@#;c", "!@#;", "a"};
+
+        for (String value : values) {
+            assertEquals(value, Arrays.asList(value.split("!@#;")), PreferenceStore.decodeList(value));
+        }
+        assertEquals(Collections.emptyList(), PreferenceStore.decodeList(""));
+    }
+
+    private static class QueueExecutor implements Executor {
+        private final Queue<Runnable> commands = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            commands.add(command);
+        }
+
+        void runAll() {
+            Runnable command;
+            while ((command = commands.poll()) != null) {
+                command.run();
+            }
+        }
+    }
+
+    private static class FakePreferences implements SharedPreferences {
+        final Map<String, Object> values = new HashMap<>();
+        int applies;
+
+        @Override
+        public Map<String, ?> getAll() {
+            return new HashMap<>(values);
+        }
+
+        @Override
+        public String getString(String key, String defValue) {
+            return values.containsKey(key) ? (String) values.get(key) : defValue;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Set<String> getStringSet(String key, Set<String> defValues) {
+            return values.containsKey(key) ? (Set<String>) values.get(key) : defValues;
+        }
+
+        @Override
+        public int getInt(String key, int defValue) {
+            return values.containsKey(key) ? (Integer) values.get(key) : defValue;
+        }
+
+        @Override
+        public long getLong(String key, long defValue) {
+            return values.containsKey(key) ? (Long) values.get(key) : defValue;
+        }
+
+        @Override
+        public float getFloat(String key, float defValue) {
+            return values.containsKey(key) ? (Float) values.get(key) : defValue;
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            return values.containsKey(key) ? (Boolean) values.get(key) : defValue;
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public Editor edit() {
+            return new FakeEditor();
+        }
+
+        @Override
+        public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+
+        @Override
+        public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+
+        private class FakeEditor implements Editor {
+            private final Map<String, Object> changes = new HashMap<>();
+
+            @Override
+            public Editor putString(String key, String value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putStringSet(String key, Set<String> values) {
+                changes.put(key, values);
+                return this;
+            }
+
+            @Override
+            public Editor putInt(String key, int value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putLong(String key, long value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putFloat(String key, float value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putBoolean(String key, boolean value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor remove(String key) {
+                changes.put(key, null);
+                return this;
+            }
+
+            @Override
+            public Editor clear() {
+                values.clear();
+                return this;
+            }
+
+            @Override
+            public boolean commit() {
+                apply();
+                return true;
+            }
+
+            @Override
+            public void apply() {
+                for (Map.Entry<String, Object> change : changes.entrySet()) {
+                    if (change.getValue() == null) {
+                        values.remove(change.getKey());
+                    } else {
+                        values.put(change.getKey(), change.getValue());
+                    }
+                }
+                applies++;
+            }
+        }
+    }
+}
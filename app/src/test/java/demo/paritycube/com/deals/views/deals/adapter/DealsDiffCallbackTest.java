@@ -0,0 +1,129 @@
+package demo.paritycube.com.deals.views.deals.adapter;
+
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import demo.paritycube.com.deals.pojo.Datum;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Feeds successive versions of a deal feed through {@link DealsDiffCallback}
+ * and checks the exact notifications the adapter would receive.
+ * <p>
+ * Unverified: the expected notifications were worked out by hand and have
+ * not been checked against the real {@link DiffUtil}. They need a build
+ * with the recyclerview-v7 classes on the unit test classpath; until one
+ * passes, a failure here may be in the expectations, not in the callback.
+ */
+public class DealsDiffCallbackTest {
+
+    @Test
+    public void sameFeed_dispatchesNothing() {
+        assertEquals(Arrays.<String>asList(),
+                diff(feed(deal(1), deal(2), deal(3)), feed(deal(1), deal(2), deal(3))));
+    }
+
+    @Test
+    public void voteCountChange_dispatchesStatsPayloadOnly() {
+        Datum updated = deal(2);
+        updated.setVoteCount(8);
+
+        assertEquals(Arrays.asList("changed 1 1 " + DealsDiffCallback.PAYLOAD_STATS),
+                diff(feed(deal(1), deal(2), deal(3)), feed(deal(1), updated, deal(3))));
+    }
+
+    @Test
+    public void scoreAndTitleChange_dispatchesBothPayloads() {
+        Datum updated = deal(1);
+        updated.setScore(99);
+        updated.setTitle("Cheaper now");
+
+        assertEquals(Arrays.asList("changed 0 1 "
+                        + (DealsDiffCallback.PAYLOAD_TEXT | DealsDiffCallback.PAYLOAD_STATS)),
+                diff(feed(deal(1), deal(2), deal(3)), feed(updated, deal(2), deal(3))));
+    }
+
+    @Test
+    public void imageChange_dispatchesFullRebind() {
+        Datum updated = deal(3);
+        updated.setImage("https://cdn.example.com/3-new.jpg");
+
+        assertEquals(Arrays.asList("changed 2 1 null"),
+                diff(feed(deal(1), deal(2), deal(3)), feed(deal(1), deal(2), updated)));
+    }
+
+    @Test
+    public void refreshWithNewDealOnTop_insertsItAndRebindsCountersOnly() {
+        Datum updated = deal(2);
+        updated.setScore(41);
+
+        assertEquals(Arrays.asList("changed 1 1 " + DealsDiffCallback.PAYLOAD_STATS, "inserted 0 1"),
+                diff(feed(deal(1), deal(2), deal(3)), feed(deal(4), deal(1), updated, deal(3))));
+    }
+
+    @Test
+    public void expiredDeal_isRemoved() {
+        assertEquals(Arrays.asList("removed 1 1"),
+                diff(feed(deal(1), deal(2), deal(3)), feed(deal(1), deal(3))));
+    }
+
+    @Test
+    public void reorderedDeal_isMoved() {
+        assertEquals(Arrays.asList("moved 2 0"),
+                diff(feed(deal(1), deal(2), deal(3)), feed(deal(3), deal(1), deal(2))));
+    }
+
+    private static List<String> diff(List<Datum> oldFeed, List<Datum> newFeed) {
+        RecordingCallback recorder = new RecordingCallback();
+        DiffUtil.calculateDiff(new DealsDiffCallback(oldFeed, newFeed)).dispatchUpdatesTo(recorder);
+        return recorder.events;
+    }
+
+    private static List<Datum> feed(Datum... deals) {
+        return new ArrayList<>(Arrays.asList(deals));
+    }
+
+    private static Datum deal(int id) {
+        Datum deal = new Datum();
+        deal.setId(id);
+        deal.setTitle("Deal " + id);
+        deal.setDescription("Description " + id);
+        deal.setImage("https://cdn.example.com/" + id + ".jpg");
+        deal.setVoteCount(id * 2);
+        deal.setScore(id * 10);
+        deal.setCurrentPrice(100 * id);
+        deal.setOriginalPrice(120 * id);
+        return deal;
+    }
+
+    private static class RecordingCallback implements ListUpdateCallback {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onInserted(int position, int count) {
+            events.add("inserted " + position + " " + count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            events.add("removed " + position + " " + count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            events.add("moved " + fromPosition + " " + toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            events.add("changed " + position + " " + count + " " + payload);
+        }
+    }
+}